@@ -0,0 +1,45 @@
+package de.tudarmstadt.lt.babelnet.extract;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The benchmarks of writing the compressed outputs.
+ *
+ * @author Dmitry Ustalov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CompressionBenchmark {
+    @Param({"NONE", "GZIP", "ZSTD", "LZ4"})
+    public Compression compression;
+
+    @Param({"100000"})
+    public int size;
+
+    private byte[][] records;
+
+    @Setup
+    public void setup() {
+        records = new byte[size][];
+        for (int i = 0; i < size; i++) {
+            records[i] = (Synthetic.synsetID(i) + '\t' + Synthetic.lemma(i) + ":1," + Synthetic.lemma(i + 1) + ":2\n").
+                    getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        try (final OutputStream stream = compression.open(Synthetic.nullStream())) {
+            for (final byte[] record : records) stream.write(record);
+        }
+    }
+}
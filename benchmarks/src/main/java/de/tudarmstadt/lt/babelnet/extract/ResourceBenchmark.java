@@ -0,0 +1,58 @@
+package de.tudarmstadt.lt.babelnet.extract;
+
+import de.tudarmstadt.lt.babelnet.extract.data.Cluster;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The benchmarks of reading the input files.
+ *
+ * @author Dmitry Ustalov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ResourceBenchmark {
+    @Param({"100000"})
+    public int size;
+
+    private Path clusters, synsets;
+
+    @Setup
+    public void setup() throws IOException {
+        clusters = Files.createTempFile("clusters", ".txt");
+        synsets = Files.createTempFile("synsets", ".txt");
+        Synthetic.writeClusters(clusters.toString(), size, 20, size, 0);
+        Synthetic.writeSynsets(synsets.toString(), size);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(clusters);
+        Files.deleteIfExists(synsets);
+    }
+
+    @Benchmark
+    public Map<Integer, Cluster> readClusters() throws IOException {
+        return Resource.readClusters(clusters.toString());
+    }
+
+    @Benchmark
+    public void readSynsets(Blackhole blackhole) throws IOException {
+        Resource.readSynsets(synsets.toString(), blackhole::consume);
+    }
+
+    @Benchmark
+    public long countLines() throws IOException {
+        return Resource.countLines(synsets.toString());
+    }
+}
@@ -0,0 +1,136 @@
+package de.tudarmstadt.lt.babelnet.extract;
+
+import de.tudarmstadt.lt.babelnet.extract.backend.Edge;
+import de.tudarmstadt.lt.babelnet.extract.backend.MemoryBackend;
+import de.tudarmstadt.lt.babelnet.extract.backend.Sense;
+import de.tudarmstadt.lt.babelnet.extract.data.SynsetIDs;
+import it.uniroma1.lcl.jlt.util.Language;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * The synthetic inputs and backend for the benchmarks, so no BabelNet installation is required to run them.
+ *
+ * @author Dmitry Ustalov
+ */
+public final class Synthetic {
+    private Synthetic() {
+    }
+
+    /**
+     * Get the synthetic synset ID, i.e., {@code bn:00000001n} for the index 0, {@code bn:00000002n} for
+     * the index 1, etc.
+     *
+     * @param index the synset index.
+     * @return the synset ID.
+     */
+    public static String synsetID(int index) {
+        return String.format("bn:%08dn", index + 1);
+    }
+
+    /**
+     * Get the code of the synthetic synset ID.
+     *
+     * @param index the synset index.
+     * @return the synset ID code.
+     */
+    public static int code(int index) {
+        return SynsetIDs.encode(synsetID(index));
+    }
+
+    /**
+     * Get the synthetic lemma.
+     *
+     * @param index the lemma index.
+     * @return the lemma.
+     */
+    public static String lemma(int index) {
+        return "lemma" + index;
+    }
+
+    /**
+     * Generate a random backend, in which every synset except the first one has up to the given number
+     * of hypernyms among the preceding synsets, and each hypernym edge is accompanied with the reverse
+     * hyponym edge. The English senses of the synsets are drawn from the vocabulary of the same size
+     * as the number of synsets.
+     *
+     * @param size      the number of synsets.
+     * @param hypernyms the maximal number of hypernyms per synset.
+     * @param senses    the number of senses per synset.
+     * @param seed      the random seed.
+     * @return the backend.
+     */
+    public static MemoryBackend backend(int size, int hypernyms, int senses, long seed) {
+        final Random random = new Random(seed);
+        final MemoryBackend.Builder builder = new MemoryBackend.Builder();
+        for (int i = 0; i < size; i++) {
+            final String synsetID = synsetID(i);
+            final int code = code(i);
+            for (int j = 0; j < senses; j++) {
+                builder.addSense(synsetID, new Sense(lemma(random.nextInt(size)), random.nextInt(100), Language.EN));
+            }
+            if (i == 0) continue;
+            random.ints(1 + random.nextInt(hypernyms), 0, i).distinct().forEach(parent -> {
+                builder.addEdge(synsetID, new Edge(code(parent), true));
+                builder.addEdge(synsetID(parent), new Edge(code, false));
+            });
+        }
+        return builder.build();
+    }
+
+    /**
+     * Write the synsets list.
+     *
+     * @param filename the file to write.
+     * @param count    the number of synsets.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public static void writeSynsets(String filename, int count) throws IOException {
+        try (final CSVPrinter csv = Resource.openRecords(filename, Compression.NONE)) {
+            for (int i = 0; i < count; i++) csv.printRecord(synsetID(i));
+        }
+    }
+
+    /**
+     * Write the Chinese Whispers clusters file, the senses of which are drawn from the given vocabulary.
+     *
+     * @param filename   the file to write.
+     * @param count      the number of clusters.
+     * @param size       the number of senses per cluster.
+     * @param vocabulary the number of distinct lemmas.
+     * @param seed       the random seed.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public static void writeClusters(String filename, int count, int size, int vocabulary, long seed) throws IOException {
+        final Random random = new Random(seed);
+        try (final CSVPrinter csv = Resource.openRecords(filename, Compression.NONE)) {
+            for (int i = 0; i < count; i++) {
+                final StringBuilder senses = new StringBuilder();
+                for (int j = 0; j < size; j++) {
+                    senses.append(lemma(random.nextInt(vocabulary))).append('#').append(random.nextInt(5)).append(", ");
+                }
+                csv.printRecord(i, size, senses);
+            }
+        }
+    }
+
+    /**
+     * Create a stream discarding everything written to it.
+     *
+     * @return the stream.
+     */
+    public static OutputStream nullStream() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+            }
+        };
+    }
+}
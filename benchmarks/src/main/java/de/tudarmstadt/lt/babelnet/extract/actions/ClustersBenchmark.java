@@ -0,0 +1,62 @@
+package de.tudarmstadt.lt.babelnet.extract.actions;
+
+import de.tudarmstadt.lt.babelnet.extract.Compression;
+import de.tudarmstadt.lt.babelnet.extract.Synthetic;
+import de.tudarmstadt.lt.babelnet.extract.WorkerPool;
+import de.tudarmstadt.lt.babelnet.extract.backend.Backend;
+import it.uniroma1.lcl.babelnet.data.BabelPOS;
+import it.uniroma1.lcl.jlt.util.Language;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The benchmark of the whole clusters action, i.e., reading the clusters, resolving the lemmas and formatting
+ * the outputs.
+ *
+ * @author Dmitry Ustalov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ClustersBenchmark {
+    @Param({"10000"})
+    public int size;
+
+    private Path clusters, words, synsets;
+    private ClustersAction action;
+
+    @Setup
+    public void setup() throws IOException {
+        final Backend backend = Synthetic.backend(size, 1, 3, 0);
+        clusters = Files.createTempFile("clusters", ".txt");
+        words = Files.createTempFile("words", ".txt");
+        synsets = Files.createTempFile("synsets", ".txt");
+        Synthetic.writeClusters(clusters.toString(), size, 20, size, 0);
+
+        final Logger logger = Logger.getLogger(ClustersBenchmark.class.getName());
+        logger.setLevel(Level.WARNING);
+        action = new ClustersAction(backend, Language.EN, BabelPOS.NOUN, clusters.toString(), words.toString(), synsets.toString(),
+                Compression.NONE, new WorkerPool(), logger);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(clusters);
+        Files.deleteIfExists(words);
+        Files.deleteIfExists(synsets);
+    }
+
+    @Benchmark
+    public void run() throws IOException {
+        action.run();
+    }
+}
@@ -0,0 +1,120 @@
+package de.tudarmstadt.lt.babelnet.extract.actions;
+
+import de.tudarmstadt.lt.babelnet.extract.Compression;
+import de.tudarmstadt.lt.babelnet.extract.RecordWriter;
+import de.tudarmstadt.lt.babelnet.extract.Synthetic;
+import de.tudarmstadt.lt.babelnet.extract.WorkerPool;
+import de.tudarmstadt.lt.babelnet.extract.backend.Backend;
+import de.tudarmstadt.lt.babelnet.extract.graph.Neighbourhood;
+import de.tudarmstadt.lt.babelnet.extract.graph.Neighbourhoods;
+import de.tudarmstadt.lt.babelnet.extract.graph.Taxonomy;
+import org.apache.commons.csv.CSVFormat;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The benchmarks of walking the synthetic taxonomy and formatting the neighbours.
+ *
+ * @author Dmitry Ustalov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class NeighboursBenchmark {
+    @Param({"100000"})
+    public int size;
+
+    @Param({"2", "3"})
+    public int depth;
+
+    private Path graph;
+    private Taxonomy taxonomy;
+    private NeighboursAction cached, mapped, closed;
+    private RecordWriter output;
+    private int[] codes;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        final Backend backend = Synthetic.backend(size, 3, 1, 0);
+        graph = Files.createTempFile("graph", ".bin");
+        Taxonomy.build(backend).write(graph.toString());
+        taxonomy = Taxonomy.map(graph.toString());
+
+        final Logger logger = Logger.getLogger(NeighboursBenchmark.class.getName());
+        logger.setLevel(Level.WARNING);
+        final WorkerPool pool = new WorkerPool(1, false);
+        cached = new NeighboursAction(backend, null, null, depth, false, 0, 0, new int[0], false, false, false, null, size, 0, false, false, false, Compression.NONE, false, pool, logger);
+        cached.open();
+        mapped = new NeighboursAction(null, null, null, depth, false, 0, 0, new int[0], false, false, false, graph.toString(), 1, 0, false, false, false, Compression.NONE, false, pool, logger);
+        mapped.open();
+        closed = new NeighboursAction(null, null, null, depth, false, 0, 0, new int[0], false, true, false, graph.toString(), 1, 0, false, false, false, Compression.NONE, false, pool, logger);
+        closed.open();
+        output = new RecordWriter(Synthetic.nullStream(), CSVFormat.MYSQL, false);
+
+        codes = new int[size];
+        for (int i = 0; i < size; i++) codes[i] = Synthetic.code(i);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        output.close();
+        Files.deleteIfExists(graph);
+    }
+
+    private int nextCode() {
+        final int code = codes[next];
+        next = (next + 1) % codes.length;
+        return code;
+    }
+
+    private int nextBatch() {
+        if (next + Neighbourhoods.CAPACITY > codes.length) next = 0;
+        final int from = next;
+        next += Neighbourhoods.CAPACITY;
+        return from;
+    }
+
+    @Benchmark
+    public Neighbourhood walkCached() {
+        return cached.walk(nextCode());
+    }
+
+    @Benchmark
+    public Neighbourhood walkMapped() {
+        return mapped.walk(taxonomy, nextCode());
+    }
+
+    @Benchmark
+    public Neighbourhood lookupClosure() {
+        return closed.lookup(nextCode());
+    }
+
+    @Benchmark
+    public int walkMappedEach() {
+        final int from = nextBatch();
+        int visited = 0;
+        for (int i = from; i < from + Neighbourhoods.CAPACITY; i++) visited += mapped.walk(taxonomy, codes[i]).size();
+        return visited;
+    }
+
+    @Benchmark
+    public Neighbourhoods walkMappedBatch() {
+        final int from = nextBatch();
+        return mapped.walk(taxonomy, codes, from, from + Neighbourhoods.CAPACITY);
+    }
+
+    @Benchmark
+    public void extract() throws IOException {
+        mapped.extract(next, nextCode(), null, output);
+    }
+}
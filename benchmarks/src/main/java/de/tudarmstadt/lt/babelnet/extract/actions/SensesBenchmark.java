@@ -0,0 +1,68 @@
+package de.tudarmstadt.lt.babelnet.extract.actions;
+
+import de.tudarmstadt.lt.babelnet.extract.Compression;
+import de.tudarmstadt.lt.babelnet.extract.RecordWriter;
+import de.tudarmstadt.lt.babelnet.extract.Synthetic;
+import de.tudarmstadt.lt.babelnet.extract.WorkerPool;
+import de.tudarmstadt.lt.babelnet.extract.backend.Backend;
+import de.tudarmstadt.lt.babelnet.extract.backend.Synset;
+import it.uniroma1.lcl.jlt.util.Language;
+import org.apache.commons.csv.CSVFormat;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The benchmark of formatting the senses.
+ *
+ * @author Dmitry Ustalov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SensesBenchmark {
+    @Param({"100000"})
+    public int size;
+
+    @Param({"1", "10"})
+    public int senses;
+
+    private SensesAction action;
+    private RecordWriter output;
+    private Map<Language, RecordWriter> outputs;
+    private Synset[] synsets;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        final Backend backend = Synthetic.backend(size, 1, senses, 0);
+        final Logger logger = Logger.getLogger(SensesBenchmark.class.getName());
+        logger.setLevel(Level.WARNING);
+        action = new SensesAction(backend, Collections.singletonList(Language.EN), null, "senses.txt", false, false, false, Compression.NONE, false, new WorkerPool(1, false), logger);
+        output = new RecordWriter(Synthetic.nullStream(), CSVFormat.MYSQL, false);
+        outputs = Collections.singletonMap(Language.EN, output);
+
+        synsets = new Synset[size];
+        for (int i = 0; i < size; i++) synsets[i] = backend.getSynset(Synthetic.synsetID(i));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        output.close();
+    }
+
+    @Benchmark
+    public void extract() throws IOException {
+        final Synset synset = synsets[next];
+        next = (next + 1) % synsets.length;
+        action.extract(next, synset.getCode(), synset, outputs);
+    }
+}
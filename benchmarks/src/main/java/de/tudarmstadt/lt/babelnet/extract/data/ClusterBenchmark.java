@@ -0,0 +1,37 @@
+package de.tudarmstadt.lt.babelnet.extract.data;
+
+import de.tudarmstadt.lt.babelnet.extract.Synthetic;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The benchmark of deriving the cluster lemmas from the senses.
+ *
+ * @author Dmitry Ustalov
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ClusterBenchmark {
+    @Param({"20", "200"})
+    public int size;
+
+    private List<String> senses;
+
+    @Setup
+    public void setup() {
+        senses = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) senses.add(Synthetic.lemma(i).toUpperCase() + '#' + (i % 5));
+    }
+
+    @Benchmark
+    public Cluster build() {
+        return new Cluster.Builder().setId(1).addAllSenses(senses).build();
+    }
+}
@@ -1,17 +1,26 @@
 package de.tudarmstadt.lt.babelnet.extract;
 
 import de.tudarmstadt.lt.babelnet.extract.actions.ClustersAction;
+import de.tudarmstadt.lt.babelnet.extract.actions.CombinedAction;
+import de.tudarmstadt.lt.babelnet.extract.actions.GraphAction;
 import de.tudarmstadt.lt.babelnet.extract.actions.NeighboursAction;
 import de.tudarmstadt.lt.babelnet.extract.actions.SensesAction;
 import de.tudarmstadt.lt.babelnet.extract.actions.SynsetsAction;
+import de.tudarmstadt.lt.babelnet.extract.backend.Backend;
+import de.tudarmstadt.lt.babelnet.extract.backend.BabelNetBackend;
+import de.tudarmstadt.lt.babelnet.extract.backend.MemoryBackend;
 import it.uniroma1.lcl.babelnet.BabelNet;
 import it.uniroma1.lcl.babelnet.data.BabelPOS;
 import it.uniroma1.lcl.jlt.util.Language;
 import org.apache.commons.cli.*;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
+import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 /**
  * BabelNet Extract is an application for extracting certain data from the BabelNet lexical ontology.
@@ -36,8 +45,27 @@ abstract class Application {
         options.addOption(Option.builder("neighbours").argName("neighbours").hasArg().build());
         options.addOption(Option.builder("senses").argName("senses").hasArg().build());
         options.addOption(Option.builder("depth").argName("depth").hasArg().build());
+        options.addOption(Option.builder("directional").build());
+        options.addOption(Option.builder("frontier").argName("frontier").hasArg().build());
+        options.addOption(Option.builder().longOpt("max-neighbours").argName("max-neighbours").hasArg().build());
+        options.addOption(Option.builder("fanout").argName("fanout").hasArg().build());
         options.addOption(Option.builder("language").argName("language").hasArg().build());
         options.addOption(Option.builder("pos").argName("pos").hasArg().build());
+        options.addOption(Option.builder("cache").argName("cache").hasArg().build());
+        options.addOption(Option.builder("prefetch").argName("prefetch").hasArg().build());
+        options.addOption(Option.builder("memory").build());
+        options.addOption(Option.builder("graph").argName("graph").hasArg().build());
+        options.addOption(Option.builder("multisource").build());
+        options.addOption(Option.builder("closure").build());
+        options.addOption(Option.builder("ordered").build());
+        options.addOption(Option.builder("threads").argName("threads").hasArg().build());
+        options.addOption(Option.builder("merge").build());
+        options.addOption(Option.builder("virtual").build());
+        options.addOption(Option.builder("resume").build());
+        options.addOption(Option.builder("binary").build());
+        options.addOption(Option.builder("sharded").build());
+        options.addOption(Option.builder("compress").argName("compress").hasArg().build());
+        options.addOption(Option.builder("fixture").argName("fixture").hasArg().build());
 
         CommandLine cmd = null;
         try {
@@ -50,8 +78,13 @@ abstract class Application {
         }
 
         final String action = Objects.requireNonNull(cmd.getOptionValue("action"), "-action needs to be specified");
-        final BabelNet babelnet = BabelNet.getInstance();
+        final boolean resume = cmd.hasOption("resume");
+        // resuming relies on the checkpoints written in the ordered mode
+        final boolean ordered = cmd.hasOption("ordered") || resume;
         final Logger logger = Logger.getLogger("BabelNet");
+        final WorkerPool pool = newWorkerPool(cmd, Runtime.getRuntime().availableProcessors());
+        logger.log(Level.INFO, "Using {0} {1} worker thread(s)",
+                new String[]{Integer.toString(pool.getParallelism()), pool.isVirtual() ? "virtual" : "platform"});
         switch (action) {
             case "clusters": {
                 final Language language = Objects.requireNonNull(Resource.LANGUAGES.get(cmd.getOptionValue("language", "EN").toLowerCase()));
@@ -60,29 +93,38 @@ abstract class Application {
                         "-clusters needs to be specified");
                 final String wordsFilename = cmd.getOptionValue("words", "synsets.txt");
                 final String synsetsFilename = cmd.getOptionValue("synsets", "synsets.txt");
-                new ClustersAction(babelnet, language, pos, clustersFilename, wordsFilename, synsetsFilename, logger).run();
+                new ClustersAction(newBackend(cmd), language, pos, clustersFilename, wordsFilename, synsetsFilename, parseCompression(cmd), pool, logger).run();
                 break;
             }
             case "neighbours": {
-                final String synsetsFilename = Objects.requireNonNull(cmd.getOptionValue("synsets"),
-                        "-synsets needs to be specified");
-                final String neighboursFilename = cmd.getOptionValue("neighbours", "neighbours.txt");
-                final int depth = Integer.valueOf(cmd.getOptionValue("depth", "1"));
-                new NeighboursAction(babelnet, synsetsFilename, neighboursFilename, depth, logger).run();
+                // the memory-mapped graph makes the backend unnecessary
+                final Backend backend = cmd.hasOption("graph") ? null : newBackend(cmd);
+                newNeighboursAction(cmd, backend, ordered, resume, pool, logger).run();
                 break;
             }
             case "senses": {
-                final Language language = Objects.requireNonNull(Resource.LANGUAGES.get(cmd.getOptionValue("language", "EN").toLowerCase()));
+                newSensesAction(cmd, newBackend(cmd), ordered, resume, pool, logger).run();
+                break;
+            }
+            case "senses,neighbours":
+            case "neighbours,senses": {
                 final String synsetsFilename = Objects.requireNonNull(cmd.getOptionValue("synsets"),
                         "-synsets needs to be specified");
-                final String sensesFilename = cmd.getOptionValue("senses", "senses.txt");
-                new SensesAction(babelnet, language, synsetsFilename, sensesFilename, logger).run();
+                final Backend backend = newBackend(cmd);
+                new CombinedAction(backend, newSensesAction(cmd, backend, ordered, resume, pool, logger),
+                        newNeighboursAction(cmd, backend, ordered, resume, pool, logger), synsetsFilename, ordered, resume, pool, logger).run();
                 break;
             }
             case "synsets": {
-                final Language language = Objects.requireNonNull(Resource.LANGUAGES.get(cmd.getOptionValue("language", "EN").toLowerCase()));
+                final List<Language> languages = parseLanguages(cmd.getOptionValue("language", "EN"));
                 final String synsetsFilename = cmd.getOptionValue("synsets", "synsets.txt");
-                new SynsetsAction(babelnet, language, synsetsFilename, logger).run();
+                final boolean merge = cmd.hasOption("merge");
+                new SynsetsAction(newBackend(cmd), languages, synsetsFilename, pool, cmd.hasOption("sharded"), merge, parseCompression(cmd), logger).run();
+                break;
+            }
+            case "export-graph": {
+                final String graphFilename = cmd.getOptionValue("graph", "graph.bin");
+                new GraphAction(newBackend(cmd), graphFilename, logger).run();
                 break;
             }
             default:
@@ -90,4 +132,106 @@ abstract class Application {
                 break;
         }
     }
+
+    /**
+     * Initialize the backend using the command line arguments. The in-memory fixture, if specified, replaces
+     * the BabelNet index.
+     *
+     * @param cmd the command line arguments.
+     * @return the backend.
+     * @throws IOException when an I/O error has occurred.
+     */
+    private static Backend newBackend(CommandLine cmd) throws IOException {
+        if (cmd.hasOption("fixture")) return MemoryBackend.read(cmd.getOptionValue("fixture"));
+        return new BabelNetBackend(BabelNet.getInstance());
+    }
+
+    /**
+     * Initialize the worker pool using the command line arguments.
+     *
+     * @param cmd     the command line arguments.
+     * @param threads the default number of threads.
+     * @return the worker pool.
+     */
+    private static WorkerPool newWorkerPool(CommandLine cmd, int threads) {
+        return new WorkerPool(Integer.valueOf(cmd.getOptionValue("threads", Integer.toString(threads))), cmd.hasOption("virtual"));
+    }
+
+    /**
+     * Initialize the neighbours action using the command line arguments.
+     *
+     * @param cmd     the command line arguments.
+     * @param backend the backend, which is not used if the graph is specified.
+     * @param ordered whether the output should follow the order of the input.
+     * @param resume  whether the output should be appended from the last checkpoint.
+     * @param pool    the worker pool.
+     * @param logger  the logger instance.
+     * @return the neighbours action.
+     */
+    private static NeighboursAction newNeighboursAction(CommandLine cmd, Backend backend, boolean ordered, boolean resume, WorkerPool pool, Logger logger) {
+        final String synsetsFilename = Objects.requireNonNull(cmd.getOptionValue("synsets"),
+                "-synsets needs to be specified");
+        final String neighboursFilename = cmd.getOptionValue("neighbours", "neighbours.txt");
+        final int depth = Integer.valueOf(cmd.getOptionValue("depth", "1"));
+        final int frontier = Integer.valueOf(cmd.getOptionValue("frontier", "0"));
+        final int maxNeighbours = Integer.valueOf(cmd.getOptionValue("max-neighbours", "0"));
+        final int[] fanout = cmd.hasOption("fanout") ? parseFanout(cmd.getOptionValue("fanout")) : new int[0];
+        final int cacheSize = Integer.valueOf(cmd.getOptionValue("cache", "1000000"));
+        final int prefetch = Integer.valueOf(cmd.getOptionValue("prefetch", "0"));
+        final boolean snapshot = cmd.hasOption("memory");
+        final String graphFilename = cmd.getOptionValue("graph");
+        return new NeighboursAction(backend, synsetsFilename, neighboursFilename, depth, cmd.hasOption("directional"), frontier, maxNeighbours, fanout, cmd.hasOption("multisource"), cmd.hasOption("closure"), snapshot, graphFilename, cacheSize, prefetch, ordered, resume, cmd.hasOption("binary"), parseCompression(cmd), cmd.hasOption("sharded"), pool, logger);
+    }
+
+    /**
+     * Initialize the senses action using the command line arguments.
+     *
+     * @param cmd     the command line arguments.
+     * @param backend the backend.
+     * @param ordered whether the output should follow the order of the input.
+     * @param resume  whether the output should be appended from the last checkpoint.
+     * @param pool    the worker pool.
+     * @param logger  the logger instance.
+     * @return the senses action.
+     */
+    private static SensesAction newSensesAction(CommandLine cmd, Backend backend, boolean ordered, boolean resume, WorkerPool pool, Logger logger) {
+        final List<Language> languages = parseLanguages(cmd.getOptionValue("language", "EN"));
+        final String synsetsFilename = Objects.requireNonNull(cmd.getOptionValue("synsets"),
+                "-synsets needs to be specified");
+        final String sensesFilename = cmd.getOptionValue("senses", "senses.txt");
+        return new SensesAction(backend, languages, synsetsFilename, sensesFilename, ordered, resume, cmd.hasOption("binary"), parseCompression(cmd), cmd.hasOption("sharded"), pool, logger);
+    }
+
+    /**
+     * Parse the compression of the outputs, e.g., {@code gzip}, {@code zstd} or {@code lz4}.
+     *
+     * @param cmd the command line arguments.
+     * @return the compression.
+     */
+    private static Compression parseCompression(CommandLine cmd) {
+        return Compression.valueOf(cmd.getOptionValue("compress", "none").trim().toUpperCase());
+    }
+
+    /**
+     * Parse the comma-separated list of the fan-out limits for every level, e.g., {@code 100,10}.
+     *
+     * @param value the list of limits.
+     * @return the limits.
+     */
+    private static int[] parseFanout(String value) {
+        return Arrays.stream(value.split(",")).mapToInt(limit -> Integer.parseInt(limit.trim())).toArray();
+    }
+
+    /**
+     * Parse the comma-separated list of languages, e.g., {@code en,de,ru}.
+     *
+     * @param value the list of languages.
+     * @return the distinct languages in the given order.
+     */
+    private static List<Language> parseLanguages(String value) {
+        return Arrays.stream(value.split(",")).map(language -> language.trim().toLowerCase()).distinct().
+                map(language -> Objects.requireNonNull(Resource.LANGUAGES.get(language),
+                        "Unknown language: " + language)).
+                collect(Collectors.toList());
+    }
 }
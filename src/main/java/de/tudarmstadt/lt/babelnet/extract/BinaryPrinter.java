@@ -0,0 +1,169 @@
+package de.tudarmstadt.lt.babelnet.extract;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A printer of the binary records. Every record is prefixed with its length in bytes, so the readers can skip
+ * the records without parsing them. All the integers are little-endian, and the strings are written as their
+ * length in bytes followed by their UTF-8 representation.
+ * <p>
+ * The binary files start with the header of two integers, i.e., the magic number and the format version.
+ *
+ * @author Dmitry Ustalov
+ */
+public class BinaryPrinter {
+    /**
+     * The magic number of the binary records file, i.e., the {@code BNXR} string.
+     */
+    public static final int MAGIC = 0x42_4E_58_52;
+
+    /**
+     * The version of the binary records file format.
+     */
+    public static final int VERSION = 1;
+
+    private byte[] bytes;
+    private int size, record = -1, records;
+
+    /**
+     * Initialize the printer.
+     *
+     * @param capacity the initial capacity in bytes.
+     */
+    public BinaryPrinter(int capacity) {
+        this.bytes = new byte[capacity];
+    }
+
+    /**
+     * Get the header of the binary records file.
+     *
+     * @return the header.
+     */
+    public static byte[] header() {
+        final BinaryPrinter printer = new BinaryPrinter(2 * Integer.BYTES);
+        printer.writeInt(MAGIC).writeInt(VERSION);
+        return printer.toByteArray();
+    }
+
+    /**
+     * Start a new record by reserving the space for its length.
+     *
+     * @return this printer.
+     */
+    public BinaryPrinter startRecord() {
+        if (record >= 0) throw new IllegalStateException("the previous record has not been ended");
+        record = size;
+        return writeInt(0);
+    }
+
+    /**
+     * End the current record by writing its length.
+     *
+     * @return this printer.
+     */
+    public BinaryPrinter endRecord() {
+        if (record < 0) throw new IllegalStateException("no record has been started");
+        final int length = size - record - Integer.BYTES, end = size;
+        size = record;
+        writeInt(length);
+        size = end;
+        record = -1;
+        records++;
+        return this;
+    }
+
+    /**
+     * Write the byte.
+     *
+     * @param value the value.
+     * @return this printer.
+     */
+    public BinaryPrinter writeByte(int value) {
+        ensure(1);
+        bytes[size++] = (byte) value;
+        return this;
+    }
+
+    /**
+     * Write the little-endian integer.
+     *
+     * @param value the value.
+     * @return this printer.
+     */
+    public BinaryPrinter writeInt(int value) {
+        ensure(Integer.BYTES);
+        bytes[size++] = (byte) value;
+        bytes[size++] = (byte) (value >>> 8);
+        bytes[size++] = (byte) (value >>> 16);
+        bytes[size++] = (byte) (value >>> 24);
+        return this;
+    }
+
+    /**
+     * Write the string as its length in bytes followed by its UTF-8 representation.
+     *
+     * @param value the value.
+     * @return this printer.
+     */
+    public BinaryPrinter writeString(String value) {
+        final byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(encoded.length);
+        ensure(encoded.length);
+        System.arraycopy(encoded, 0, bytes, size, encoded.length);
+        size += encoded.length;
+        return this;
+    }
+
+    /**
+     * Get the number of written bytes.
+     *
+     * @return the number of bytes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the number of records ended since the last reset.
+     *
+     * @return the number of records.
+     */
+    public int getRecords() {
+        return records;
+    }
+
+    /**
+     * Write the written bytes to the given stream without copying them.
+     *
+     * @param stream the stream.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public void writeTo(OutputStream stream) throws IOException {
+        stream.write(bytes, 0, size);
+    }
+
+    /**
+     * Copy the written bytes.
+     *
+     * @return the bytes.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    /**
+     * Discard the written bytes.
+     */
+    public void reset() {
+        size = 0;
+        record = -1;
+        records = 0;
+    }
+
+    private void ensure(int count) {
+        if (size + count > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + count));
+    }
+}
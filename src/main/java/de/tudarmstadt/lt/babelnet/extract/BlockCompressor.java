@@ -0,0 +1,136 @@
+package de.tudarmstadt.lt.babelnet.extract;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * An output stream that splits the data into blocks and compresses them in parallel, in the manner of pigz.
+ * The compressed blocks are written to the underlying stream in their original order. Flushing this stream
+ * compresses the incomplete block, so the flushed data always end on a block boundary and can be
+ * decompressed on their own; this keeps the checkpoints of the resumable outputs valid.
+ *
+ * @author Dmitry Ustalov
+ */
+class BlockCompressor extends OutputStream {
+    /**
+     * The size of an uncompressed block in bytes.
+     */
+    private static final int BLOCK = 1 << 20;
+
+    /**
+     * The threads compressing the blocks of all the streams.
+     */
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                final Thread thread = new Thread(runnable, "compressor");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * The permits for the blocks in flight, i.e., submitted but not yet written, shared by all the streams,
+     * so the memory they take does not grow with the number of streams. Only the oldest block of a stream
+     * goes without a permit, so a stream never waits for the permits held by the others.
+     */
+    private static final Semaphore IN_FLIGHT = new Semaphore(2 * Runtime.getRuntime().availableProcessors());
+
+    private final OutputStream stream;
+    private final Compression compression;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private byte[] block = new byte[BLOCK];
+    private int size;
+    private boolean closed;
+
+    /**
+     * Initialize the stream.
+     *
+     * @param stream      the underlying stream.
+     * @param compression the compression format.
+     */
+    BlockCompressor(OutputStream stream, Compression compression) {
+        this.stream = stream;
+        this.compression = compression;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (size == block.length) submit();
+        block[size++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (size == block.length) submit();
+            final int count = Math.min(length, block.length - size);
+            System.arraycopy(bytes, offset, block, size, count);
+            size += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Compress the incomplete block, write all the compressed blocks and flush the underlying stream.
+     *
+     * @throws IOException when an I/O error has occurred.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (size > 0) submit();
+        while (!pending.isEmpty()) stream.write(take());
+        stream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            flush();
+        } finally {
+            if (pending.size() > 1) IN_FLIGHT.release(pending.size() - 1);
+            pending.forEach(future -> future.cancel(false));
+            pending.clear();
+            stream.close();
+        }
+    }
+
+    /**
+     * Hand the current block over to the compressing threads, writing the completed blocks. When no permit
+     * is available, the oldest blocks of this stream are written instead of waiting for the other streams.
+     */
+    private void submit() throws IOException {
+        while (!pending.isEmpty() && pending.peek().isDone()) stream.write(take());
+        while (!pending.isEmpty() && !IN_FLIGHT.tryAcquire()) stream.write(take());
+        final byte[] data = block;
+        final int length = size;
+        pending.add(POOL.submit(() -> compression.compress(data, length)));
+        block = new byte[BLOCK];
+        size = 0;
+    }
+
+    /**
+     * Remove the oldest block, releasing its permit, and wait until it is compressed.
+     */
+    private byte[] take() throws IOException {
+        final Future<byte[]> future = pending.remove();
+        if (!pending.isEmpty()) IN_FLIGHT.release();
+        try {
+            return future.get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        } catch (final ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) throw (IOException) ex.getCause();
+            throw new IOException(ex.getCause());
+        }
+    }
+}
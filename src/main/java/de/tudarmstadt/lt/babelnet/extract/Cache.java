@@ -0,0 +1,210 @@
+package de.tudarmstadt.lt.babelnet.extract;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * A bounded concurrent memoizing cache shared between the worker threads, which is keyed by the non-negative
+ * integers, such as the synset ID codes. The entries are distributed over a number of independently locked
+ * segments. Each segment is an open-addressing hash table that evicts the entries approximately in the least
+ * recently used order using the CLOCK algorithm as soon as its share of the capacity is exceeded, so neither
+ * the keys are boxed nor the lookups allocate anything.
+ *
+ * @param <V> the value type.
+ * @author Dmitry Ustalov
+ */
+public class Cache<V> {
+    private final Segment<V>[] segments;
+    private final int shift;
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+
+    /**
+     * Initialize the cache.
+     *
+     * @param capacity the maximal number of entries.
+     */
+    @SuppressWarnings("unchecked")
+    public Cache(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity should be positive");
+        final int concurrency = Runtime.getRuntime().availableProcessors() * 4;
+        int size = 1;
+        while (size < concurrency && size < capacity) size <<= 1;
+        this.segments = (Segment<V>[]) new Segment<?>[size];
+        this.shift = Integer.SIZE - Integer.numberOfTrailingZeros(size);
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment<>((capacity + size - 1) / size);
+        }
+    }
+
+    /**
+     * Get the value associated with the given key, computing it using the given function if it is absent.
+     * The loading is performed outside of the segment lock, so concurrent misses of the same key may call
+     * the function more than once.
+     *
+     * @param key    the non-negative key.
+     * @param loader the function computing the value.
+     * @return the value.
+     */
+    public V get(int key, IntFunction<? extends V> loader) {
+        if (key < 0) throw new IllegalArgumentException("key should be non-negative");
+        final int h = hash(key);
+        // the high bits of the hash select the segment, and the low bits index its table
+        final Segment<V> segment = segments[(shift == Integer.SIZE) ? 0 : h >>> shift];
+        V value;
+        synchronized (segment) {
+            value = segment.get(key, h);
+        }
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+        misses.increment();
+        value = loader.apply(key);
+        synchronized (segment) {
+            segment.put(key, h, value);
+        }
+        return value;
+    }
+
+    /**
+     * Get the value associated with the given key if it is cached. A found value is counted as a hit,
+     * while an absent one is not counted as a miss, since it is expected to be loaded using
+     * {@link #get(int, IntFunction)} later.
+     *
+     * @param key the non-negative key.
+     * @return the value, or {@code null} if it is absent.
+     */
+    public V getIfPresent(int key) {
+        if (key < 0) throw new IllegalArgumentException("key should be non-negative");
+        final int h = hash(key);
+        final Segment<V> segment = segments[(shift == Integer.SIZE) ? 0 : h >>> shift];
+        final V value;
+        synchronized (segment) {
+            value = segment.get(key, h);
+        }
+        if (value != null) hits.increment();
+        return value;
+    }
+
+    /**
+     * Get the number of cached entries.
+     *
+     * @return the number of entries.
+     */
+    public int size() {
+        int size = 0;
+        for (final Segment<V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Get the number of lookups answered from the cache.
+     *
+     * @return the number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of lookups that required loading the value.
+     *
+     * @return the number of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private static int hash(int key) {
+        final int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * A segment is a hash table limited by the given number of entries. Every hit marks its entry as
+     * referenced, and the clock hand evicts the first unreferenced entry, clearing the marks it passes by.
+     */
+    private static class Segment<V> {
+        private static final int EMPTY = -1;
+
+        private final int[] keys;
+        private final Object[] values;
+        private final boolean[] referenced;
+        private final int capacity, mask;
+        private int size, hand;
+
+        Segment(int capacity) {
+            final int length = Integer.highestOneBit(capacity * 2 - 1) << 1;
+            this.keys = new int[length];
+            this.values = new Object[length];
+            this.referenced = new boolean[length];
+            this.capacity = capacity;
+            this.mask = length - 1;
+            Arrays.fill(keys, EMPTY);
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(int key, int h) {
+            final int position = find(key, h);
+            if (keys[position] != key) return null;
+            referenced[position] = true;
+            return (V) values[position];
+        }
+
+        void put(int key, int h, V value) {
+            int position = find(key, h);
+            if (keys[position] != key) {
+                if (size == capacity) {
+                    evict();
+                    position = find(key, h);
+                }
+                keys[position] = key;
+                size++;
+            }
+            values[position] = value;
+        }
+
+        private int find(int key, int h) {
+            int position = h & mask;
+            while (keys[position] != key && keys[position] != EMPTY) position = (position + 1) & mask;
+            return position;
+        }
+
+        private void evict() {
+            while (true) {
+                hand = (hand + 1) & mask;
+                if (keys[hand] == EMPTY) continue;
+                if (referenced[hand]) {
+                    referenced[hand] = false;
+                    continue;
+                }
+                remove(hand);
+                return;
+            }
+        }
+
+        /**
+         * Remove the entry at the given position, shifting back the following entries of the same probe sequence.
+         */
+        private void remove(int position) {
+            for (int next = (position + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+                final int home = hash(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - position) & mask)) {
+                    keys[position] = keys[next];
+                    values[position] = values[next];
+                    referenced[position] = referenced[next];
+                    position = next;
+                }
+            }
+            keys[position] = EMPTY;
+            values[position] = null;
+            referenced[position] = false;
+            size--;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package de.tudarmstadt.lt.babelnet.extract;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+import java.io.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The compression formats of the input and output files. The outputs are compressed in independent blocks,
+ * each of which is a complete gzip member, zstd frame or LZ4 frame. The standard decompressors read such
+ * concatenated blocks as a single stream, so the compressed files can also be concatenated.
+ *
+ * @author Dmitry Ustalov
+ */
+public enum Compression {
+    /**
+     * No compression.
+     */
+    NONE(""),
+
+    /**
+     * The gzip format.
+     */
+    GZIP(".gz"),
+
+    /**
+     * The Zstandard format.
+     */
+    ZSTD(".zst"),
+
+    /**
+     * The LZ4 frame format.
+     */
+    LZ4(".lz4");
+
+    private final String extension;
+
+    Compression(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Get the conventional file name extension, e.g., {@code .gz}.
+     *
+     * @return the extension, or the empty string if there is no compression.
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Wrap the given stream so the data written are buffered and compressed in parallel blocks.
+     *
+     * @param stream the underlying stream.
+     * @return the stream to write.
+     */
+    public OutputStream open(OutputStream stream) {
+        if (this == NONE) return new BufferedOutputStream(stream, 1 << 16);
+        return new BlockCompressor(stream, this);
+    }
+
+    /**
+     * Compress the block as a self-contained member, frame or the like.
+     *
+     * @param block  the data.
+     * @param length the number of bytes to compress.
+     * @return the compressed data.
+     * @throws IOException when an I/O error has occurred.
+     */
+    byte[] compress(byte[] block, int length) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(length / 2);
+        try (final OutputStream stream = compressor(bytes)) {
+            stream.write(block, 0, length);
+        }
+        return bytes.toByteArray();
+    }
+
+    private OutputStream compressor(OutputStream stream) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPOutputStream(stream, 1 << 16);
+            case ZSTD:
+                return new ZstdOutputStream(stream);
+            case LZ4:
+                return new LZ4FrameOutputStream(stream);
+            default:
+                return stream;
+        }
+    }
+
+    /**
+     * Detect the compression of the given stream by its magic number and wrap it to decompress the data.
+     * The uncompressed data are passed through as is.
+     *
+     * @param stream the underlying stream.
+     * @return the stream to read.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public static InputStream decompress(InputStream stream) throws IOException {
+        final BufferedInputStream buffered = new BufferedInputStream(stream, 1 << 16);
+        buffered.mark(4);
+        int magic = 0, read = 0;
+        for (int b; read < 4 && (b = buffered.read()) >= 0; read++) magic |= b << (8 * read);
+        buffered.reset();
+        if (read >= 2 && (magic & 0xFFFF) == 0x8B1F) return new GZIPInputStream(buffered, 1 << 16);
+        if (read == 4 && magic == 0xFD2FB528) return new ZstdInputStream(buffered);
+        if (read == 4 && magic == 0x184D2204) return new LZ4FrameInputStream(buffered);
+        return buffered;
+    }
+}
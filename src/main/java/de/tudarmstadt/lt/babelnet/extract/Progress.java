@@ -0,0 +1,177 @@
+package de.tudarmstadt.lt.babelnet.extract;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A progress reporter that replaces logging every processed item. The workers only increment a counter,
+ * while a separate thread samples it at a fixed interval and logs the throughput, the estimated remaining
+ * time and the values of the watched gauges, such as the queue depth or the cache hit rate.
+ *
+ * @author Dmitry Ustalov
+ */
+public class Progress implements AutoCloseable {
+    /**
+     * The interval between the reports in seconds.
+     */
+    private static final long INTERVAL = 10;
+
+    private final String unit;
+    private final Logger logger;
+    private final LongAdder count = new LongAdder();
+    private final Map<String, Supplier<String>> gauges = new LinkedHashMap<>();
+    private final ScheduledExecutorService reporter;
+    private final long started = System.nanoTime();
+    private volatile long total, skipped;
+    private long last, lastTime = started;
+
+    /**
+     * Initialize the reporter and start its thread.
+     *
+     * @param unit   the name of the processed items.
+     * @param total  the total number of items, or a negative value if it is unknown.
+     * @param logger the logger instance.
+     */
+    public Progress(String unit, long total, Logger logger) {
+        this.unit = unit;
+        this.total = total;
+        this.logger = logger;
+        this.reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(this::report, INTERVAL, INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Report the value of the given gauge along with the progress. The gauges should be added before
+     * the processing starts.
+     *
+     * @param name  the gauge name.
+     * @param gauge the function returning the current value.
+     * @return this reporter.
+     */
+    public Progress watch(String name, Supplier<?> gauge) {
+        synchronized (gauges) {
+            gauges.put(name, () -> String.valueOf(gauge.get()));
+        }
+        return this;
+    }
+
+    /**
+     * Count the total number of items in a separate thread, so the processing does not wait for the input
+     * to be read, and decompressed, once more. The remaining time is estimated as soon as the total is known.
+     *
+     * @param counter the function returning the total number of items.
+     * @return this reporter.
+     */
+    public Progress count(Callable<Long> counter) {
+        final Thread thread = new Thread(() -> {
+            try {
+                total = counter.call();
+            } catch (final Exception ex) {
+                logger.log(Level.WARNING, "Cannot count the {0}(s): {1}", new String[]{unit, ex.toString()});
+            }
+        }, "counter");
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Count one processed item.
+     */
+    public void step() {
+        count.increment();
+    }
+
+    /**
+     * Count the given number of items processed before, e.g., by the interrupted run. These items are not
+     * taken into account when estimating the throughput.
+     *
+     * @param items the number of items.
+     */
+    public void skip(long items) {
+        count.add(items);
+        synchronized (this) {
+            skipped += items;
+            last += items;
+        }
+    }
+
+    /**
+     * Get the number of processed items.
+     *
+     * @return the number of items.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Stop the reporter thread and report the final statistics.
+     */
+    @Override
+    public void close() {
+        reporter.shutdownNow();
+        final long elapsed = System.nanoTime() - started, processed = getCount() - skipped;
+        logger.log(Level.INFO, "Processed {0} {1}(s) in {2}, {3} {1}(s)/s",
+                new String[]{Long.toString(processed), unit, duration(elapsed), rate(processed, elapsed)});
+    }
+
+    /**
+     * Log the current progress.
+     */
+    private synchronized void report() {
+        final long now = System.nanoTime(), current = getCount(), total = this.total;
+        final StringBuilder sb = new StringBuilder();
+        sb.append(current);
+        if (total >= 0) sb.append(" of ").append(total);
+        sb.append(' ').append(unit).append("(s), ").append(rate(current - last, now - lastTime)).
+                append(' ').append(unit).append("(s)/s");
+        final long processed = current - skipped;
+        if (total >= 0 && processed > 0) {
+            final double remaining = (double) (total - current) * (now - started) / processed;
+            sb.append(", ETA ").append(duration(Math.max(0, (long) remaining)));
+        }
+        synchronized (gauges) {
+            for (final Map.Entry<String, Supplier<String>> gauge : gauges.entrySet()) {
+                sb.append(", ").append(gauge.getKey()).append(": ").append(gauge.getValue().get());
+            }
+        }
+        logger.log(Level.INFO, "Progress: {0}", sb);
+        last = current;
+        lastTime = now;
+    }
+
+    /**
+     * Format the given fraction as a percentage.
+     *
+     * @param part  the part.
+     * @param whole the whole.
+     * @return the percentage, or {@code n/a} if the whole is zero.
+     */
+    public static String percent(long part, long whole) {
+        if (whole == 0) return "n/a";
+        return String.format("%.1f%%", 100.0 * part / whole);
+    }
+
+    private static String rate(long items, long nanos) {
+        if (nanos <= 0) return "0";
+        return String.format("%.1f", items * 1e9 / nanos);
+    }
+
+    private static String duration(long nanos) {
+        final long seconds = TimeUnit.NANOSECONDS.toSeconds(nanos);
+        return String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+}
@@ -0,0 +1,429 @@
+package de.tudarmstadt.lt.babelnet.extract;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A writer stage that lets many worker threads output CSV or binary records without contending on a lock.
+ * Each worker formats and encodes its records into a thread-local buffer, and the completed chunks are handed
+ * over to the single writer thread through a lock-free queue. In the ordered mode, the chunks are written
+ * in the order of their sequence numbers, which makes the output deterministic. Also, in the ordered mode,
+ * the writer thread periodically reports the number of items completely written and flushed, which makes
+ * it possible to resume an interrupted run from this point. In the sharded mode, there is no writer thread at all:
+ * every worker writes its chunks directly to its own shard, and the number of records in each shard is counted.
+ *
+ * @author Dmitry Ustalov
+ */
+public class RecordWriter implements Closeable {
+    /**
+     * The number of characters or bytes a buffer accumulates before it is handed over in the unordered mode.
+     */
+    private static final int CHUNK = 1 << 16;
+
+    /**
+     * The number of queued bytes after which the workers wait for the writer thread. In the ordered mode,
+     * the chunks waiting for their predecessors are counted as well, except for the chunk that is written next.
+     */
+    private static final long BACKLOG = 1L << 26;
+
+    /**
+     * The interval between the checkpoints in nanoseconds.
+     */
+    private static final long CHECKPOINT_INTERVAL = 60_000_000_000L;
+
+    private final OutputStream stream;
+    private final Shards shards;
+    private final CSVFormat format;
+    private final boolean ordered;
+    private final long start;
+    private final Checkpoint checkpoint;
+    private final Queue<Chunk> queue = new ConcurrentLinkedQueue<>();
+    private final Queue<Buffer> buffers = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Buffer> buffer = ThreadLocal.withInitial(this::register);
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicInteger shard = new AtomicInteger();
+    private final Thread thread;
+    private volatile long next;
+    private volatile boolean closed, aborted;
+    private volatile IOException failure;
+
+    /**
+     * Initialize the writer and start the writer thread.
+     *
+     * @param stream  the underlying stream.
+     * @param format  the CSV format.
+     * @param ordered whether the records should be written in the order of the sequence numbers.
+     */
+    public RecordWriter(OutputStream stream, CSVFormat format, boolean ordered) {
+        this(stream, null, format, ordered, 0, null);
+    }
+
+    /**
+     * Initialize the writer and start the writer thread in the ordered mode, skipping the items that have
+     * been written previously.
+     *
+     * @param stream     the underlying stream.
+     * @param format     the CSV format.
+     * @param start      the sequence number of the first item to write.
+     * @param checkpoint the checkpoint to save the progress, if any.
+     */
+    public RecordWriter(OutputStream stream, CSVFormat format, long start, Checkpoint checkpoint) {
+        this(stream, null, format, true, start, checkpoint);
+    }
+
+    /**
+     * Initialize the writer in the sharded mode. Every thread opens its own shard on its first write,
+     * and the shards are numbered in the order of opening. The records are not ordered.
+     *
+     * @param shards the function opening the shards.
+     * @param format the CSV format.
+     */
+    public RecordWriter(Shards shards, CSVFormat format) {
+        this(null, shards, format, false, 0, null);
+    }
+
+    private RecordWriter(OutputStream stream, Shards shards, CSVFormat format, boolean ordered, long start, Checkpoint checkpoint) {
+        this.stream = stream;
+        this.shards = shards;
+        this.format = format;
+        this.ordered = ordered;
+        this.start = start;
+        this.checkpoint = checkpoint;
+        this.next = start;
+        if (shards == null) {
+            this.thread = new Thread(this::drain, "writer");
+            thread.setDaemon(true);
+            thread.start();
+        } else {
+            this.thread = null;
+        }
+    }
+
+    /**
+     * Format the records for the item with the given sequence number. In the ordered mode, this method
+     * must be called exactly once for every sequence number starting from the first one, even when the item
+     * has no records; otherwise, the sequence number is ignored.
+     *
+     * @param sequence the sequence number of the item.
+     * @param records  the function printing the records of the item.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public void write(long sequence, Records records) throws IOException {
+        if (failure != null) throw failure;
+        final Buffer local = buffer.get();
+        records.print(local.printer);
+        if (ordered || local.text.length() >= CHUNK) hand(sequence, local);
+    }
+
+    /**
+     * Encode the binary records for the item with the given sequence number. The same rules as for
+     * {@link #write(long, Records)} apply. A writer should not mix the CSV and the binary records.
+     *
+     * @param sequence the sequence number of the item.
+     * @param records  the function printing the binary records of the item.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public void writeBinary(long sequence, BinaryRecords records) throws IOException {
+        if (failure != null) throw failure;
+        final Buffer local = buffer.get();
+        records.print(local.binary);
+        if (ordered || local.binary.size() >= CHUNK) hand(sequence, local);
+    }
+
+    /**
+     * Format the records that do not belong to any sequence. This is only possible in the unordered mode.
+     *
+     * @param records the function printing the records.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public void write(Records records) throws IOException {
+        if (ordered) throw new IllegalStateException("the records have to be numbered in the ordered mode");
+        write(-1, records);
+    }
+
+    /**
+     * Stop waiting for the missing items in the ordered mode, e.g., when some items will never be written
+     * due to a failure. The workers are no longer held back by the chunks waiting for these items, so they
+     * can finish.
+     */
+    public void abort() {
+        aborted = true;
+    }
+
+    /**
+     * Get the sequence number of the first item to write.
+     *
+     * @return the sequence number.
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * Get the number of records written to every shard in the sharded mode. The counts are final
+     * once the writer has been closed.
+     *
+     * @return the mapping between the shard numbers and the numbers of records in the shards.
+     */
+    public SortedMap<Integer, Long> getShards() {
+        final SortedMap<Integer, Long> counts = new TreeMap<>();
+        for (final Buffer local : buffers) counts.put(local.shard, local.records);
+        return counts;
+    }
+
+    /**
+     * Write the remaining buffers and wait for the writer thread to finish. The underlying stream
+     * is not closed, but the shards opened in the sharded mode are. This method should be called
+     * after all the workers are done.
+     *
+     * @throws IOException when an I/O error has occurred.
+     */
+    @Override
+    public void close() throws IOException {
+        for (final Buffer local : buffers) {
+            if (local.text.length() > 0 || local.binary.size() > 0) hand(-1, local);
+        }
+        if (shards != null) {
+            closeShards();
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        }
+        if (failure != null) throw failure;
+        stream.flush();
+    }
+
+    private Buffer register() {
+        final Buffer local = new Buffer(format);
+        if (shards != null) {
+            local.shard = shard.getAndIncrement();
+            try {
+                local.stream = shards.open(local.shard);
+            } catch (final IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+        buffers.add(local);
+        return local;
+    }
+
+    private void closeShards() throws IOException {
+        IOException failure = null;
+        for (final Buffer local : buffers) {
+            try {
+                local.stream.close();
+            } catch (final IOException ex) {
+                if (failure == null) failure = ex;
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Encode the contents of the buffer, clear it and hand the result over to the writer thread,
+     * or write it to the own shard of the buffer in the sharded mode.
+     */
+    private void hand(long sequence, Buffer local) throws IOException {
+        if (local.stream != null) {
+            local.flush();
+            return;
+        }
+        final byte[] bytes;
+        if (local.text.length() > 0) {
+            bytes = local.text.toString().getBytes(StandardCharsets.UTF_8);
+            local.text.setLength(0);
+        } else {
+            bytes = local.binary.toByteArray();
+            local.binary.reset();
+        }
+        // the chunk written next never waits, otherwise, the reordered chunks could block the writer forever
+        while (backlog.get() > BACKLOG && failure == null && !aborted && !(ordered && sequence == next)) {
+            LockSupport.parkNanos(100_000);
+        }
+        if (failure != null) throw failure;
+        backlog.addAndGet(bytes.length);
+        queue.add(new Chunk(sequence, bytes));
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * The writer thread loop.
+     */
+    private void drain() {
+        final Map<Long, byte[]> pending = new TreeMap<>();
+        long next = start, saved = start, deadline = System.nanoTime() + CHECKPOINT_INTERVAL;
+        try {
+            while (true) {
+                if (checkpoint != null && System.nanoTime() >= deadline) {
+                    if (next > saved) {
+                        stream.flush();
+                        checkpoint.save(next);
+                        saved = next;
+                    }
+                    deadline = System.nanoTime() + CHECKPOINT_INTERVAL;
+                }
+                final Chunk chunk = queue.poll();
+                if (chunk == null) {
+                    if (closed && queue.isEmpty()) break;
+                    // the checkpoint is due even if no chunks arrive, e.g., while a slow item is being processed
+                    if (checkpoint == null) LockSupport.park(this);
+                    else LockSupport.parkNanos(this, Math.max(deadline - System.nanoTime(), 1));
+                    continue;
+                }
+                if (!ordered || chunk.sequence < 0) {
+                    stream.write(chunk.bytes);
+                    backlog.addAndGet(-chunk.bytes.length);
+                } else if (chunk.sequence == next) {
+                    stream.write(chunk.bytes);
+                    backlog.addAndGet(-chunk.bytes.length);
+                    for (byte[] bytes = pending.remove(++next); bytes != null; bytes = pending.remove(++next)) {
+                        stream.write(bytes);
+                        backlog.addAndGet(-bytes.length);
+                    }
+                    this.next = next;
+                } else if (chunk.sequence > next) {
+                    // the pending chunk remains in the backlog until it is written
+                    pending.put(chunk.sequence, chunk.bytes);
+                } else {
+                    // the item has been written before resuming
+                    backlog.addAndGet(-chunk.bytes.length);
+                }
+            }
+            if (checkpoint != null && pending.isEmpty()) {
+                stream.flush();
+                checkpoint.save(next);
+            }
+            // the gaps are only possible if some items have not been processed due to a failure
+            for (final byte[] bytes : pending.values()) stream.write(bytes);
+        } catch (final IOException ex) {
+            failure = ex;
+            queue.clear();
+            backlog.set(0);
+        }
+    }
+
+    /**
+     * A function printing the records of an item.
+     */
+    @FunctionalInterface
+    public interface Records {
+        /**
+         * Print the records.
+         *
+         * @param csv the CSV printer.
+         * @throws IOException when an I/O error has occurred.
+         */
+        void print(CSVPrinter csv) throws IOException;
+    }
+
+    /**
+     * A function printing the binary records of an item.
+     */
+    @FunctionalInterface
+    public interface BinaryRecords {
+        /**
+         * Print the records.
+         *
+         * @param out the binary printer.
+         * @throws IOException when an I/O error has occurred.
+         */
+        void print(BinaryPrinter out) throws IOException;
+    }
+
+    /**
+     * A checkpoint saving the progress of the ordered writer.
+     */
+    @FunctionalInterface
+    public interface Checkpoint {
+        /**
+         * Save the progress. When this method is called, the underlying stream has been flushed.
+         *
+         * @param sequence the number of the items completely written.
+         * @throws IOException when an I/O error has occurred.
+         */
+        void save(long sequence) throws IOException;
+    }
+
+    /**
+     * A function opening the shards in the sharded mode.
+     */
+    @FunctionalInterface
+    public interface Shards {
+        /**
+         * Open the shard for writing. The record writer closes the shard when it is closed itself.
+         *
+         * @param shard the shard number.
+         * @return the stream of the shard.
+         * @throws IOException when an I/O error has occurred.
+         */
+        OutputStream open(int shard) throws IOException;
+    }
+
+    /**
+     * A thread-local buffer.
+     */
+    private static class Buffer {
+        private final StringBuilder text = new StringBuilder(CHUNK * 2);
+        private final BinaryPrinter binary = new BinaryPrinter(CHUNK * 2);
+        private final CSVPrinter printer;
+        private int shard;
+        private OutputStream stream;
+        private long records;
+
+        Buffer(CSVFormat format) {
+            try {
+                this.printer = new CSVPrinter(text, format);
+            } catch (final IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+
+        /**
+         * Write the contents to the own shard, counting the records, and clear them.
+         */
+        private void flush() throws IOException {
+            if (text.length() > 0) {
+                // the CSV records are separated by the line breaks, which are escaped in the values
+                for (int i = 0; i < text.length(); i++) if (text.charAt(i) == '\n') records++;
+                stream.write(text.toString().getBytes(StandardCharsets.UTF_8));
+                text.setLength(0);
+            } else {
+                records += binary.getRecords();
+                binary.writeTo(stream);
+                binary.reset();
+            }
+        }
+    }
+
+    /**
+     * An encoded chunk of records.
+     */
+    private static class Chunk {
+        private final long sequence;
+        private final byte[] bytes;
+
+        Chunk(long sequence, byte[] bytes) {
+            this.sequence = sequence;
+            this.bytes = bytes;
+        }
+    }
+}
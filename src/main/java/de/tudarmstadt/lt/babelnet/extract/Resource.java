@@ -1,6 +1,7 @@
 package de.tudarmstadt.lt.babelnet.extract;
 
 import de.tudarmstadt.lt.babelnet.extract.data.Cluster;
+import de.tudarmstadt.lt.babelnet.extract.data.SynsetIDs;
 import it.uniroma1.lcl.babelnet.data.BabelPOS;
 import it.uniroma1.lcl.jlt.util.Language;
 import org.apache.commons.csv.CSVFormat;
@@ -10,13 +11,15 @@ import org.apache.commons.csv.CSVRecord;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
-import static java.util.stream.Collectors.toList;
-
 /**
  * An interface containing the input/output routines used by other classes.
  *
@@ -35,6 +38,7 @@ public interface Resource {
 
     /**
      * Open the specified file for reading and pass the CSV parser to the given function once.
+     * The compressed files are decompressed transparently, see {@link Compression#decompress(InputStream)}.
      *
      * @param filename the file to read.
      * @param f        the function to pass the parser.
@@ -43,7 +47,7 @@ public interface Resource {
      * @throws IOException when an I/O error has occurred.
      */
     static <R> R readRecords(String filename, Function<CSVParser, R> f) throws IOException {
-        try (final InputStream stream = new FileInputStream(filename);
+        try (final InputStream stream = Compression.decompress(new FileInputStream(filename));
              final Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8);
              final CSVParser csv = CSVFormat.MYSQL.parse(reader)) {
             return f.apply(csv);
@@ -54,12 +58,12 @@ public interface Resource {
      * Open the Chinese Whispers clusters file and parse the records.
      *
      * @param filename the file to read.
-     * @return the mapping between a set of cluster IDs and their representations.
+     * @return the mapping between a set of cluster IDs and their representations in the order of the file.
      * @throws IOException when an I/O error has occurred.
      */
     static Map<Integer, Cluster> readClusters(String filename) throws IOException {
         return readRecords(filename, csv -> {
-            final Map<Integer, Cluster> map = new HashMap<>();
+            final Map<Integer, Cluster> map = new LinkedHashMap<>();
             for (final CSVRecord row : csv) {
                 final Integer id = Integer.parseInt(row.get(0));
                 final List<String> senses = Arrays.asList(row.get(2).substring(0, row.get(2).length() - 2).split(", "));
@@ -70,31 +74,73 @@ public interface Resource {
     }
 
     /**
-     * Parse the synset list.
+     * Parse the synset list record by record, passing every synset ID to the given consumer as soon as
+     * it has been read, so the list is never held in memory.
      *
      * @param filename the file to read.
-     * @return the list of synset IDs.
+     * @param f        the consumer to pass the synset IDs.
      * @throws IOException when an I/O error has occurred.
      */
-    static List<String> readSynsets(String filename) throws IOException {
-        return readRecords(filename, csv -> {
-            try {
-                return csv.getRecords().stream().map(row -> row.get(0)).collect(toList());
-            } catch (final IOException ex) {
-                throw new RuntimeException(ex);
+    static void readSynsets(String filename, Consumer<String> f) throws IOException {
+        readRecords(filename, csv -> {
+            for (final CSVRecord row : csv) f.accept(row.get(0));
+            return null;
+        });
+    }
+
+    /**
+     * Parse the synset list record by record, passing the synset ID codes to the given consumer in batches
+     * of the given size, except for the last one, which may be smaller.
+     *
+     * @param filename the file to read.
+     * @param size     the batch size.
+     * @param f        the consumer to pass the batches of the codes, see {@link SynsetIDs}.
+     * @throws IOException when an I/O error has occurred.
+     * @throws IllegalArgumentException when any of the synset IDs is malformed.
+     */
+    static void readSynsets(String filename, int size, Consumer<int[]> f) throws IOException {
+        final int[] batch = new int[size];
+        final int[] length = new int[1];
+        readSynsets(filename, synsetID -> {
+            batch[length[0]++] = SynsetIDs.encode(synsetID);
+            if (length[0] == size) {
+                f.accept(batch.clone());
+                length[0] = 0;
             }
         });
+        if (length[0] > 0) f.accept(Arrays.copyOf(batch, length[0]));
+    }
+
+    /**
+     * Count the lines of the given file without parsing them, which is much cheaper than reading the records.
+     *
+     * @param filename the file to read.
+     * @return the number of lines.
+     * @throws IOException when an I/O error has occurred.
+     */
+    static long countLines(String filename) throws IOException {
+        long lines = 0;
+        int last = '\n';
+        try (final InputStream stream = Compression.decompress(new FileInputStream(filename))) {
+            final byte[] buffer = new byte[1 << 16];
+            for (int read = stream.read(buffer); read >= 0; read = stream.read(buffer)) {
+                for (int i = 0; i < read; i++) if (buffer[i] == '\n') lines++;
+                if (read > 0) last = buffer[read - 1];
+            }
+        }
+        return (last == '\n') ? lines : lines + 1;
     }
 
     /**
      * Open the specified class for writing and pass the CSV printer to the given consumer once.
      *
-     * @param filename the file to write.
-     * @param f        the consumer to pass the printer.
+     * @param filename    the file to write.
+     * @param compression the compression of the file.
+     * @param f           the consumer to pass the printer.
      * @throws IOException when an I/O error has occurred.
      */
-    static void writeRecords(String filename, Consumer<CSVPrinter> f) throws IOException {
-        try (final OutputStream stream = new FileOutputStream(filename);
+    static void writeRecords(String filename, Compression compression, Consumer<CSVPrinter> f) throws IOException {
+        try (final OutputStream stream = compression.open(new FileOutputStream(filename));
              final Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
              final CSVPrinter csv = CSVFormat.MYSQL.print(writer)) {
             f.accept(csv);
@@ -102,14 +148,256 @@ public interface Resource {
     }
 
     /**
-     * Open the specified class for writing the given string collection.
+     * Open the specified file for writing. The caller is responsible for closing the returned printer.
+     *
+     * @param filename    the file to write.
+     * @param compression the compression of the file.
+     * @return the CSV printer.
+     * @throws IOException when an I/O error has occurred.
+     */
+    static CSVPrinter openRecords(String filename, Compression compression) throws IOException {
+        final Writer writer = new OutputStreamWriter(compression.open(new FileOutputStream(filename)), StandardCharsets.UTF_8);
+        try {
+            return CSVFormat.MYSQL.print(writer);
+        } catch (final IOException ex) {
+            writer.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Derive the name of the shard file from the given file name, e.g., {@code synsets-00007.txt}
+     * for the shard 7 of {@code synsets.txt}.
+     *
+     * @param filename the file name.
+     * @param shard    the shard number.
+     * @return the shard file name.
+     */
+    static String shardFilename(String filename, int shard) {
+        return suffixFilename(filename, String.format("-%05d", shard));
+    }
+
+    /**
+     * Derive the names of the per-language files from the given file name, e.g., {@code senses-ru.txt}
+     * for Russian and {@code senses.txt}. The file name is preserved when there is only one language.
+     *
+     * @param filename  the file name.
+     * @param languages the languages.
+     * @return the mapping between the languages and their file names.
+     */
+    static Map<Language, String> languageFilenames(String filename, Collection<Language> languages) {
+        final Map<Language, String> filenames = new EnumMap<>(Language.class);
+        for (final Language language : languages) {
+            filenames.put(language, (languages.size() == 1) ? filename :
+                    suffixFilename(filename, '-' + language.toString().toLowerCase()));
+        }
+        return filenames;
+    }
+
+    /**
+     * Insert the given suffix into the file name before its extension, e.g., {@code senses-ru.txt.gz}
+     * for {@code senses.txt.gz}. The extensions of the compressed files are not taken into account.
+     *
+     * @param filename the file name.
+     * @param suffix   the suffix.
+     * @return the suffixed file name.
+     */
+    static String suffixFilename(String filename, String suffix) {
+        for (final Compression compression : Compression.values()) {
+            final String extension = compression.getExtension();
+            if (!extension.isEmpty() && filename.endsWith(extension) && filename.length() > extension.length()) {
+                return suffixFilename(filename.substring(0, filename.length() - extension.length()), suffix) + extension;
+            }
+        }
+        final int separator = filename.lastIndexOf(File.separatorChar), dot = filename.lastIndexOf('.');
+        if (dot <= separator + 1) return filename + suffix;
+        return filename.substring(0, dot) + suffix + filename.substring(dot);
+    }
+
+    /**
+     * Concatenate the given files into the specified one and delete them. The files compressed by
+     * {@link Compression#open(OutputStream)} can be concatenated as well.
      *
      * @param filename the file to write.
-     * @param records  the collection of strings to write to the file.
+     * @param parts    the files to concatenate.
+     * @throws IOException when an I/O error has occurred.
+     */
+    static void mergeFiles(String filename, Collection<String> parts) throws IOException {
+        try (final OutputStream stream = new FileOutputStream(filename)) {
+            for (final String part : parts) Files.copy(Paths.get(part), stream);
+        }
+        for (final String part : parts) Files.delete(Paths.get(part));
+    }
+
+    /**
+     * Open the specified file for writing and pass the record writer to the given consumer once. The record
+     * writer is suitable for writing from many threads at once.
+     *
+     * @param filename    the file to write.
+     * @param ordered     whether the records should be written in the order of their sequence numbers.
+     * @param resume      whether the file should be appended from the last checkpoint.
+     * @param binary      whether the file contains binary records rather than CSV records.
+     * @param compression the compression of the file.
+     * @param sharded     whether every worker should write its own shard of the file.
+     * @param f           the consumer to pass the record writer.
+     * @throws IOException when an I/O error has occurred.
+     * @see #writeRecords(Map, boolean, boolean, boolean, Compression, boolean, Consumer)
+     */
+    static void writeRecords(String filename, boolean ordered, boolean resume, boolean binary, Compression compression, boolean sharded, Consumer<RecordWriter> f) throws IOException {
+        writeRecords(Collections.singletonMap(filename, filename), ordered, resume, binary, compression, sharded, writers -> f.accept(writers.get(filename)));
+    }
+
+    /**
+     * Open the specified files for writing and pass the record writers to the given consumer once.
+     * In the ordered mode, the progress of every file is periodically saved to the checkpoint file
+     * next to it, e.g., {@code senses.txt.checkpoint}, which contains the number of the written items
+     * and the length of the file. When resuming, each file is truncated to the length in its checkpoint,
+     * and its record writer starts with the saved number of items; resuming implies the ordered mode.
+     * A file that is not resumed loses its previous checkpoint, and a file shorter than its checkpoint
+     * cannot be resumed.
+     * A new binary file starts with the header written by {@link BinaryPrinter#header()}. Since the compressed
+     * blocks are completed on every checkpoint, the compressed files are resumed in the same way.
+     * <p>
+     * In the sharded mode, every worker writes its records to its own shard of each file, e.g.,
+     * {@code neighbours-00007.txt}, without the single writer thread. Having all the records written, the list
+     * of the shards and their numbers of records is saved to the manifest file, e.g.,
+     * {@code neighbours.txt.manifest}; see {@link #readManifest(String)}. The sharded outputs are not ordered.
+     *
+     * @param filenames   the mapping between the keys and the files to write.
+     * @param ordered     whether the records should be written in the order of their sequence numbers.
+     * @param resume      whether the files should be appended from their last checkpoints.
+     * @param binary      whether the files contain binary records rather than CSV records.
+     * @param compression the compression of the files.
+     * @param sharded     whether every worker should write its own shard of each file.
+     * @param f           the consumer to pass the mapping between the keys and the record writers.
+     * @param <K>         the key type.
+     * @throws IOException when an I/O error has occurred.
+     */
+    static <K> void writeRecords(Map<K, String> filenames, boolean ordered, boolean resume, boolean binary, Compression compression, boolean sharded, Consumer<Map<K, RecordWriter>> f) throws IOException {
+        if (sharded && (ordered || resume)) throw new IllegalArgumentException("the sharded outputs cannot be ordered");
+        final Map<K, RecordWriter> writers = new LinkedHashMap<>();
+        final List<Closeable> closeables = new ArrayList<>();
+        IOException failure = null;
+        try {
+            for (final Map.Entry<K, String> entry : filenames.entrySet()) {
+                final String filename = entry.getValue();
+                final Path checkpointPath = Paths.get(filename + ".checkpoint");
+                final boolean append = resume && Files.exists(checkpointPath);
+                // a stale checkpoint must not be trusted by a later run resuming this one
+                if (!append) Files.deleteIfExists(checkpointPath);
+                if (sharded) {
+                    final RecordWriter records = new RecordWriter(shard -> {
+                        final OutputStream stream = compression.open(new FileOutputStream(shardFilename(filename, shard)));
+                        if (binary) stream.write(BinaryPrinter.header());
+                        return stream;
+                    }, CSVFormat.MYSQL);
+                    closeables.add(records);
+                    writers.put(entry.getKey(), records);
+                    continue;
+                }
+                long start = 0;
+                if (append) {
+                    final String[] checkpoint = new String(Files.readAllBytes(checkpointPath), StandardCharsets.UTF_8).trim().split("\t");
+                    start = Long.parseLong(checkpoint[0]);
+                    final long length = Long.parseLong(checkpoint[1]);
+                    if (!Files.exists(Paths.get(filename)) || Files.size(Paths.get(filename)) < length) {
+                        throw new IOException("The file is shorter than its checkpoint: " + filename);
+                    }
+                    try (final RandomAccessFile file = new RandomAccessFile(filename, "rw")) {
+                        file.setLength(length);
+                    }
+                }
+                final FileOutputStream file = new FileOutputStream(filename, append);
+                final OutputStream stream = compression.open(file);
+                closeables.add(stream);
+                if (binary && !append) stream.write(BinaryPrinter.header());
+                final RecordWriter records;
+                if (ordered || resume) {
+                    records = new RecordWriter(stream, CSVFormat.MYSQL, start, sequence -> {
+                        file.getChannel().force(false);
+                        final Path temporary = Paths.get(filename + ".checkpoint.tmp");
+                        Files.write(temporary, (sequence + "\t" + file.getChannel().position() + "\n").getBytes(StandardCharsets.UTF_8));
+                        Files.move(temporary, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    });
+                } else {
+                    records = new RecordWriter(stream, CSVFormat.MYSQL, false);
+                }
+                closeables.add(records);
+                writers.put(entry.getKey(), records);
+            }
+            f.accept(writers);
+        } finally {
+            // the record writers are closed before their underlying streams
+            for (int i = closeables.size() - 1; i >= 0; i--) {
+                try {
+                    closeables.get(i).close();
+                } catch (final IOException ex) {
+                    if (failure == null) failure = ex;
+                }
+            }
+        }
+        if (failure != null) throw failure;
+        if (sharded) {
+            for (final Map.Entry<K, String> entry : filenames.entrySet()) {
+                final Map<String, Long> shards = new LinkedHashMap<>();
+                for (final Map.Entry<Integer, Long> shard : writers.get(entry.getKey()).getShards().entrySet()) {
+                    shards.put(shardFilename(entry.getValue(), shard.getKey()), shard.getValue());
+                }
+                writeManifest(entry.getValue(), shards);
+            }
+        }
+    }
+
+    /**
+     * Write the manifest of the sharded file, which is named after it with the {@code .manifest} suffix.
+     * Each record of the manifest contains the name of a shard relative to the manifest and the number
+     * of records in this shard.
+     *
+     * @param filename the sharded file.
+     * @param shards   the mapping between the shard files and their numbers of records.
+     * @throws IOException when an I/O error has occurred.
+     */
+    static void writeManifest(String filename, Map<String, Long> shards) throws IOException {
+        writeRecords(filename + ".manifest", Compression.NONE, csv -> {
+            try {
+                for (final Map.Entry<String, Long> shard : shards.entrySet()) {
+                    csv.printRecord(Paths.get(shard.getKey()).getFileName(), shard.getValue());
+                }
+            } catch (final IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+    }
+
+    /**
+     * Read the manifest of the sharded file.
+     *
+     * @param filename the sharded file.
+     * @return the mapping between the shard files and their numbers of records in the order of the manifest.
+     * @throws IOException when an I/O error has occurred.
+     * @see #writeManifest(String, Map)
+     */
+    static Map<String, Long> readManifest(String filename) throws IOException {
+        final Path manifest = Paths.get(filename + ".manifest");
+        return readRecords(manifest.toString(), csv -> {
+            final Map<String, Long> shards = new LinkedHashMap<>();
+            for (final CSVRecord row : csv) {
+                shards.put(manifest.resolveSibling(row.get(0)).toString(), Long.parseLong(row.get(1)));
+            }
+            return shards;
+        });
+    }
+
+    /**
+     * Open the specified class for writing the given string collection.
+     *
+     * @param filename    the file to write.
+     * @param compression the compression of the file.
+     * @param records     the collection of strings to write to the file.
      * @throws IOException when an I/O error has occurred.
      */
-    static void writeRecords(String filename, Collection<String> records) throws IOException {
-        writeRecords(filename, csv -> {
+    static void writeRecords(String filename, Compression compression, Collection<String> records) throws IOException {
+        writeRecords(filename, compression, csv -> {
             try {
                 csv.printRecords(records);
             } catch (final IOException ex) {
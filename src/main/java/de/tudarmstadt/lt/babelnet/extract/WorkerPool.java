@@ -0,0 +1,98 @@
+package de.tudarmstadt.lt.babelnet.extract;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+
+/**
+ * The configuration of the worker threads shared by the actions. Since the work is dominated by the blocking
+ * BabelNet index lookups, the number of threads does not have to match the number of processors. On the Java
+ * versions supporting them, virtual threads can be used to run thousands of concurrent lookups cheaply.
+ *
+ * @author Dmitry Ustalov
+ */
+public class WorkerPool {
+    private final int parallelism;
+    private final boolean virtual;
+    private final ThreadFactory factory;
+
+    /**
+     * Initialize the pool of platform threads, one per processor.
+     */
+    public WorkerPool() {
+        this(Runtime.getRuntime().availableProcessors(), false);
+    }
+
+    /**
+     * Initialize the pool.
+     *
+     * @param parallelism the number of threads.
+     * @param virtual     whether the virtual threads should be used.
+     * @throws UnsupportedOperationException when the virtual threads are not supported by the JVM.
+     */
+    public WorkerPool(int parallelism, boolean virtual) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism should be positive");
+        this.parallelism = parallelism;
+        this.virtual = virtual;
+        this.factory = virtual ? newVirtualThreadFactory() : runnable -> {
+            final Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Get the number of threads.
+     *
+     * @return the number of threads.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Check whether the virtual threads are used.
+     *
+     * @return whether the virtual threads are used.
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Start the workers processing the items with the given consumer.
+     *
+     * @param task the consumer that processes an item.
+     * @param <T>  the item type.
+     * @return the workers.
+     */
+    public <T> Workers<T> start(Consumer<? super T> task) {
+        return start((Workers.Task<T>) (sequence, item) -> task.accept(item));
+    }
+
+    /**
+     * Start the workers processing the items with the given task.
+     *
+     * @param task the task that processes an item given its sequence number.
+     * @param <T>  the item type.
+     * @return the workers.
+     */
+    public <T> Workers<T> start(Workers.Task<? super T> task) {
+        return new Workers<>(parallelism, factory, task);
+    }
+
+    /**
+     * Create the factory of virtual threads. The reflection is used as the application targets Java 8.
+     *
+     * @return the thread factory.
+     * @throws UnsupportedOperationException when the virtual threads are not supported by the JVM.
+     */
+    private static ThreadFactory newVirtualThreadFactory() {
+        try {
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (final NoSuchMethodException | ClassNotFoundException | IllegalAccessException | InvocationTargetException ex) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this JVM", ex);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package de.tudarmstadt.lt.babelnet.extract;
+
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A fixed number of worker threads consuming the submitted items from a bounded queue. The producer is
+ * blocked while the queue is full, so the items are read only as fast as they are processed. Every item
+ * is numbered in the order of submission, which allows restoring this order in the outputs. The workers
+ * are usually started using a {@link WorkerPool}.
+ *
+ * @param <T> the item type.
+ * @author Dmitry Ustalov
+ */
+public class Workers<T> implements AutoCloseable {
+    /**
+     * The marker telling a worker to stop.
+     */
+    private static final Entry<Object> END = new Entry<>(-1, null);
+
+    private final BlockingQueue<Entry<? extends T>> queue;
+    private final Thread[] threads;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final AtomicBoolean reported = new AtomicBoolean();
+    private volatile Runnable listener;
+    private long sequence, skipped;
+
+    /**
+     * Initialize and start the workers.
+     *
+     * @param parallelism the number of threads.
+     * @param factory     the factory creating the threads.
+     * @param task        the task that processes an item given its sequence number.
+     */
+    public Workers(int parallelism, ThreadFactory factory, Task<? super T> task) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism should be positive");
+        this.queue = new ArrayBlockingQueue<>(Math.min(parallelism * 64, 1 << 16));
+        this.threads = new Thread[parallelism];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = factory.newThread(() -> consume(task));
+            threads[i].setName("worker-" + i);
+        }
+        for (final Thread thread : threads) thread.start();
+    }
+
+    private void consume(Task<? super T> task) {
+        try {
+            for (Entry<? extends T> entry = queue.take(); entry != END; entry = queue.take()) {
+                // after a failure, the remaining items are drained to let the producer finish
+                if (failure.get() != null) continue;
+                try {
+                    task.process(entry.sequence, entry.item);
+                } catch (final Throwable ex) {
+                    // even an error should not stop the worker, otherwise the producer would wait forever
+                    if (failure.compareAndSet(null, ex)) notifyFailure();
+                }
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Submit the item for processing, waiting while the queue is full. This method should be called
+     * from a single producer thread.
+     *
+     * @param item the item.
+     * @throws RuntimeException when one of the previous items has failed.
+     */
+    public void submit(T item) {
+        submit(item, 1);
+    }
+
+    /**
+     * Submit the item that takes the given number of sequence numbers, e.g., a batch of the input records.
+     * The item receives the first of these numbers.
+     *
+     * @param item   the item.
+     * @param weight the number of sequence numbers.
+     * @throws RuntimeException when one of the previous items has failed.
+     */
+    public void submit(T item, int weight) {
+        rethrow();
+        final long current = sequence;
+        sequence += weight;
+        if (sequence <= skipped) return;
+        try {
+            queue.put(new Entry<>(current, item));
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Wait for all the submitted items to be processed and stop the threads.
+     *
+     * @throws RuntimeException when any of the items has failed.
+     * @throws Error            when an error has occurred while processing any of the items.
+     */
+    @Override
+    public void close() {
+        try {
+            for (int i = 0; i < threads.length; i++) queue.put(end());
+            for (final Thread thread : threads) thread.join();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        }
+        rethrow();
+    }
+
+    /**
+     * Set the listener called once any item has failed, e.g., to release the other workers waiting
+     * for the failed item. The listener is called at once if a failure has already happened.
+     *
+     * @param listener the listener.
+     */
+    public void onFailure(Runnable listener) {
+        this.listener = listener;
+        if (failure.get() != null) listener.run();
+    }
+
+    /**
+     * Skip the given number of the first submitted items, e.g., when they have been processed before.
+     * The skipped items still receive their sequence numbers. An item taking several sequence numbers
+     * is only skipped if all of them are.
+     *
+     * @param count the number of items to skip.
+     */
+    public void skip(long count) {
+        this.skipped = count;
+    }
+
+    /**
+     * Skip the items that have been written to all the given outputs before resuming, counting them
+     * as processed by the progress reporter.
+     *
+     * @param outputs  the record writers.
+     * @param progress the progress reporter.
+     * @param logger   the logger instance.
+     * @see RecordWriter#getStart()
+     */
+    public void skip(Collection<RecordWriter> outputs, Progress progress, Logger logger) {
+        final long start = outputs.stream().mapToLong(RecordWriter::getStart).min().orElse(0);
+        if (start > 0) {
+            logger.log(Level.INFO, "Resuming after {0} item(s)", Long.toString(start));
+            skip(start);
+            progress.skip(start);
+        }
+    }
+
+    /**
+     * Get the number of items waiting in the queue.
+     *
+     * @return the number of items.
+     */
+    public int getQueued() {
+        return queue.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Entry<? extends T> end() {
+        return (Entry<? extends T>) END;
+    }
+
+    private void notifyFailure() {
+        final Runnable current = listener;
+        if (current != null) current.run();
+    }
+
+    /**
+     * Throw the first failure unless it has already been thrown. The errors are thrown as is, and the checked
+     * exceptions are wrapped.
+     */
+    private void rethrow() {
+        final Throwable ex = failure.get();
+        if (ex == null || !reported.compareAndSet(false, true)) return;
+        if (ex instanceof RuntimeException) throw (RuntimeException) ex;
+        if (ex instanceof Error) throw (Error) ex;
+        throw new RuntimeException(ex);
+    }
+
+    /**
+     * A task processing the items.
+     *
+     * @param <T> the item type.
+     */
+    @FunctionalInterface
+    public interface Task<T> {
+        /**
+         * Process the item.
+         *
+         * @param sequence the number of the item in the order of submission.
+         * @param item     the item.
+         */
+        void process(long sequence, T item);
+    }
+
+    /**
+     * A numbered item.
+     */
+    private static class Entry<T> {
+        private final long sequence;
+        private final T item;
+
+        Entry(long sequence, T item) {
+            this.sequence = sequence;
+            this.item = item;
+        }
+    }
+}
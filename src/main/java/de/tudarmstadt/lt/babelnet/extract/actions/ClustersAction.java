@@ -1,26 +1,25 @@
 package de.tudarmstadt.lt.babelnet.extract.actions;
 
+import de.tudarmstadt.lt.babelnet.extract.Compression;
+import de.tudarmstadt.lt.babelnet.extract.Progress;
+import de.tudarmstadt.lt.babelnet.extract.WorkerPool;
+import de.tudarmstadt.lt.babelnet.extract.Workers;
+import de.tudarmstadt.lt.babelnet.extract.backend.Backend;
+import de.tudarmstadt.lt.babelnet.extract.backend.Synset;
 import de.tudarmstadt.lt.babelnet.extract.data.Cluster;
-import it.uniroma1.lcl.babelnet.BabelNet;
-import it.uniroma1.lcl.babelnet.BabelSynset;
-import it.uniroma1.lcl.babelnet.BabelSynsetID;
+import de.tudarmstadt.lt.babelnet.extract.data.SynsetIDs;
 import it.uniroma1.lcl.babelnet.data.BabelPOS;
 import it.uniroma1.lcl.jlt.util.Language;
 
 import java.io.IOException;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static de.tudarmstadt.lt.babelnet.extract.Resource.readClusters;
 import static de.tudarmstadt.lt.babelnet.extract.Resource.writeRecords;
-import static java.util.Collections.synchronizedMap;
 import static java.util.stream.Collectors.joining;
-import static java.util.stream.Collectors.toSet;
 
 /**
  * The clusters action extracts the list of synsets per given clusters and the list of the synsets containing
@@ -29,30 +28,36 @@ import static java.util.stream.Collectors.toSet;
  * @author Dmitry Ustalov
  */
 public class ClustersAction {
-    private final BabelNet babelnet;
+    private final Backend backend;
     private final Language language;
     private final BabelPOS pos;
     private final String clustersFilename, wordsFilename, synsetsFilename;
+    private final Compression compression;
+    private final WorkerPool pool;
     private final Logger logger;
 
     /**
      * Initialize the action.
      *
-     * @param babelnet         the BabelNet instance.
+     * @param backend          the synset backend.
      * @param language         the language.
      * @param pos              the part of speech.
      * @param clustersFilename the clusters input file.
      * @param wordsFilename    the words output file.
      * @param synsetsFilename  the synsets output file.
+     * @param compression      the compression of the outputs.
+     * @param pool             the worker pool.
      * @param logger           the logger instance.
      */
-    public ClustersAction(BabelNet babelnet, Language language, BabelPOS pos, String clustersFilename, String wordsFilename, String synsetsFilename, Logger logger) {
-        this.babelnet = babelnet;
+    public ClustersAction(Backend backend, Language language, BabelPOS pos, String clustersFilename, String wordsFilename, String synsetsFilename, Compression compression, WorkerPool pool, Logger logger) {
+        this.backend = backend;
         this.language = language;
         this.pos = pos;
         this.clustersFilename = clustersFilename;
         this.wordsFilename = wordsFilename;
         this.synsetsFilename = synsetsFilename;
+        this.compression = compression;
+        this.pool = pool;
         this.logger = logger;
         logger.log(Level.INFO, "Reading clusters from \"{0}\"", clustersFilename);
         logger.log(Level.INFO, "Writing words to \"{0}\"", wordsFilename);
@@ -60,44 +65,64 @@ public class ClustersAction {
     }
 
     /**
-     * Process the data and write the outputs.
+     * Process the data and write the outputs. Since the same lemmas occur in many clusters, the distinct
+     * lemmas are resolved in parallel first, each exactly once, and then the results are written per cluster.
      *
      * @throws IOException when an I/O error has occurred.
      */
     public void run() throws IOException {
-        final Map<Integer, Cluster> allClusters = synchronizedMap(readClusters(clustersFilename));
-        final Set<String> allSynsets = new ConcurrentSkipListSet<>();
+        final Map<Integer, Cluster> allClusters = readClusters(clustersFilename);
 
-        writeRecords(wordsFilename, csv ->
-                allClusters.values().parallelStream().forEach(cluster -> {
-                    try {
-                        logger.log(Level.INFO, "Extracting {0}", cluster.getId().toString());
-                        final Map<String, Collection<String>> synsets = new HashMap<>();
-                        for (final String lemma : cluster.getLemmas()) {
-                            final Collection<String> lemmaSynsets = babelnet.
-                                    getSynsets(lemma, language, pos).stream().
-                                    map(BabelSynset::getId).map(BabelSynsetID::toString).
-                                    collect(toSet());
-                            synsets.put(lemma, lemmaSynsets);
-                            allSynsets.addAll(lemmaSynsets);
-                        }
-                        synchronized (csv) {
-                            for (final Map.Entry<String, Collection<String>> entry : synsets.entrySet()) {
-                                csv.printRecord(
-                                        cluster.getId().toString(),
-                                        entry.getKey(),
-                                        entry.getValue().stream().collect(joining(","))
-                                );
-                            }
-                        }
-                        logger.log(Level.INFO, "Extracted {0}", cluster.getId().toString());
-                    } catch (final IOException ex) {
-                        throw new RuntimeException(ex);
+        // the set removes the lemmas repeated across the clusters
+        final Set<String> allLemmas = new TreeSet<>();
+        for (final Cluster cluster : allClusters.values()) allLemmas.addAll(cluster.getLemmas());
+        logger.log(Level.INFO, "Resolving {0} distinct lemma(s) of {1} cluster(s)",
+                new String[]{Integer.toString(allLemmas.size()), Integer.toString(allClusters.size())});
+
+        // the synsets of every lemma are held as the sorted array of their ID codes
+        final Map<String, int[]> lemmaSynsets = new ConcurrentHashMap<>(allLemmas.size() * 2);
+        try (final Progress progress = new Progress("lemma", allLemmas.size(), logger);
+             final Workers<String> workers = pool.start(lemma -> {
+                 try {
+                     lemmaSynsets.put(lemma, backend.
+                             getSynsets(lemma, language, pos).stream().
+                             mapToInt(Synset::getCode).
+                             sorted().distinct().toArray());
+                     progress.step();
+                 } catch (final IOException ex) {
+                     throw new RuntimeException(ex);
+                 }
+             })) {
+            progress.watch("queue", workers::getQueued);
+            allLemmas.forEach(workers::submit);
+        }
+
+        writeRecords(wordsFilename, compression, csv -> {
+            try {
+                for (final Cluster cluster : allClusters.values()) {
+                    if (logger.isLoggable(Level.FINE)) logger.log(Level.FINE, "Extracting {0}", cluster.getId());
+                    for (final String lemma : new LinkedHashSet<>(cluster.getLemmas())) {
+                        csv.printRecord(
+                                cluster.getId().toString(),
+                                lemma,
+                                Arrays.stream(lemmaSynsets.get(lemma)).mapToObj(SynsetIDs::decode).collect(joining(","))
+                        );
                     }
-                })
-        );
+                    if (logger.isLoggable(Level.FINE)) logger.log(Level.FINE, "Extracted {0}", cluster.getId());
+                }
+            } catch (final IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
 
-        writeRecords(synsetsFilename, allSynsets);
+        final int[] allSynsets = lemmaSynsets.values().stream().flatMapToInt(Arrays::stream).sorted().distinct().toArray();
+        writeRecords(synsetsFilename, compression, csv -> {
+            try {
+                for (final int code : allSynsets) csv.printRecord(SynsetIDs.decode(code));
+            } catch (final IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
         logger.log(Level.INFO, "Done");
     }
 }
@@ -0,0 +1,105 @@
+package de.tudarmstadt.lt.babelnet.extract.actions;
+
+import de.tudarmstadt.lt.babelnet.extract.Progress;
+import de.tudarmstadt.lt.babelnet.extract.RecordWriter;
+import de.tudarmstadt.lt.babelnet.extract.WorkerPool;
+import de.tudarmstadt.lt.babelnet.extract.Workers;
+import de.tudarmstadt.lt.babelnet.extract.backend.Backend;
+import de.tudarmstadt.lt.babelnet.extract.backend.Synset;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static de.tudarmstadt.lt.babelnet.extract.Resource.countLines;
+import static de.tudarmstadt.lt.babelnet.extract.Resource.readSynsets;
+import static de.tudarmstadt.lt.babelnet.extract.Resource.writeRecords;
+
+/**
+ * The combined action extracts both the senses and the neighbours of the given synsets, loading each synset
+ * from the backend only once. The outputs are the same as the ones of the senses and neighbours actions.
+ *
+ * @author Dmitry Ustalov
+ */
+public class CombinedAction {
+    /**
+     * The number of synsets in a batch passed to the workers, each of which looks up the batch at once.
+     */
+    private static final int BATCH = 64;
+
+    private final Backend backend;
+    private final SensesAction senses;
+    private final NeighboursAction neighbours;
+    private final String synsetsFilename;
+    private final boolean ordered, resume;
+    private final WorkerPool pool;
+    private final Logger logger;
+
+    /**
+     * Initialize the action.
+     *
+     * @param backend         the synset backend.
+     * @param senses          the senses action.
+     * @param neighbours      the neighbours action.
+     * @param synsetsFilename the synsets input file.
+     * @param ordered         whether the outputs should follow the order of the input synsets.
+     * @param resume          whether the outputs should be appended from the last checkpoints.
+     * @param pool            the worker pool.
+     * @param logger          the logger instance.
+     */
+    public CombinedAction(Backend backend, SensesAction senses, NeighboursAction neighbours, String synsetsFilename, boolean ordered, boolean resume, WorkerPool pool, Logger logger) {
+        this.backend = backend;
+        this.senses = senses;
+        this.neighbours = neighbours;
+        this.synsetsFilename = synsetsFilename;
+        this.ordered = ordered;
+        this.resume = resume;
+        this.pool = pool;
+        this.logger = logger;
+    }
+
+    /**
+     * Process the data and write the outputs.
+     *
+     * @throws IOException when an I/O error has occurred.
+     */
+    public void run() throws IOException {
+        neighbours.open();
+
+        writeRecords(neighbours.getNeighboursFilename(), ordered, resume, neighbours.isBinary(), neighbours.getCompression(), neighbours.isSharded(), neighboursOutput -> {
+            try {
+                writeRecords(senses.getSensesFilenames(), ordered, resume, senses.isBinary(), senses.getCompression(), senses.isSharded(), sensesOutputs -> {
+                    try (final Progress progress = new Progress("synset", -1, logger).count(() -> countLines(synsetsFilename));
+                         final Workers<int[]> workers = pool.start((sequence, batch) -> {
+                             try {
+                                 final List<Synset> synsets = backend.getSynsets(batch);
+                                 for (int i = 0; i < batch.length; i++) {
+                                     senses.extract(sequence + i, batch[i], synsets.get(i), sensesOutputs);
+                                 }
+                                 neighbours.extract(sequence, batch, synsets, neighboursOutput);
+                                 for (int i = 0; i < batch.length; i++) progress.step();
+                             } catch (final IOException ex) {
+                                 throw new RuntimeException(ex);
+                             }
+                         })) {
+                        neighbours.watch(progress, workers);
+                        final List<RecordWriter> outputs = new ArrayList<>(sensesOutputs.values());
+                        outputs.add(neighboursOutput);
+                        workers.onFailure(() -> outputs.forEach(RecordWriter::abort));
+                        workers.skip(outputs, progress, logger);
+                        readSynsets(synsetsFilename, BATCH, batch -> workers.submit(batch, batch.length));
+                    } catch (final IOException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                });
+            } catch (final IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+
+        neighbours.close();
+        logger.log(Level.INFO, "Done");
+    }
+}
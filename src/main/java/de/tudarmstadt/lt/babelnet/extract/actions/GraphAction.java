@@ -0,0 +1,47 @@
+package de.tudarmstadt.lt.babelnet.extract.actions;
+
+import de.tudarmstadt.lt.babelnet.extract.backend.Backend;
+import de.tudarmstadt.lt.babelnet.extract.graph.Taxonomy;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The graph action exports the hypernymy and hyponymy graph of the backend to the binary file that can be
+ * memory-mapped by the neighbours action.
+ *
+ * @author Dmitry Ustalov
+ */
+public class GraphAction {
+    private final Backend backend;
+    private final String graphFilename;
+    private final Logger logger;
+
+    /**
+     * Initialize the action.
+     *
+     * @param backend       the synset backend.
+     * @param graphFilename the graph output file.
+     * @param logger        the logger instance.
+     */
+    public GraphAction(Backend backend, String graphFilename, Logger logger) {
+        this.backend = backend;
+        this.graphFilename = graphFilename;
+        this.logger = logger;
+        logger.log(Level.INFO, "Writing graph to \"{0}\"", graphFilename);
+    }
+
+    /**
+     * Process the data and write the outputs.
+     *
+     * @throws IOException when an I/O error has occurred.
+     */
+    public void run() throws IOException {
+        final Taxonomy taxonomy = Taxonomy.build(backend);
+        logger.log(Level.INFO, "Read {0} synset(s) and {1} edge(s)",
+                new String[]{Integer.toString(taxonomy.size()), Integer.toString(taxonomy.edges())});
+        taxonomy.write(graphFilename);
+        logger.log(Level.INFO, "Done");
+    }
+}
@@ -1,17 +1,35 @@
 package de.tudarmstadt.lt.babelnet.extract.actions;
 
-import it.uniroma1.lcl.babelnet.*;
-import it.uniroma1.lcl.babelnet.data.BabelPointer;
+import de.tudarmstadt.lt.babelnet.extract.WorkerPool;
+import de.tudarmstadt.lt.babelnet.extract.Workers;
+import de.tudarmstadt.lt.babelnet.extract.Cache;
+import de.tudarmstadt.lt.babelnet.extract.Compression;
+import de.tudarmstadt.lt.babelnet.extract.Progress;
+import de.tudarmstadt.lt.babelnet.extract.RecordWriter;
+import de.tudarmstadt.lt.babelnet.extract.backend.Backend;
+import de.tudarmstadt.lt.babelnet.extract.backend.Edge;
+import de.tudarmstadt.lt.babelnet.extract.backend.Synset;
+import de.tudarmstadt.lt.babelnet.extract.data.SynsetIDs;
+import de.tudarmstadt.lt.babelnet.extract.graph.Closure;
+import de.tudarmstadt.lt.babelnet.extract.graph.Neighbourhood;
+import de.tudarmstadt.lt.babelnet.extract.graph.Neighbourhoods;
+import de.tudarmstadt.lt.babelnet.extract.graph.Taxonomy;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import static de.tudarmstadt.lt.babelnet.extract.Resource.countLines;
 import static de.tudarmstadt.lt.babelnet.extract.Resource.readSynsets;
 import static de.tudarmstadt.lt.babelnet.extract.Resource.writeRecords;
-import static java.util.Collections.synchronizedList;
-import static java.util.stream.Collectors.joining;
 
 /**
  * The neighbours action extracts the n-level ego network for each of the given synsets.
@@ -19,29 +37,107 @@ import static java.util.stream.Collectors.joining;
  * @author Dmitry Ustalov
  */
 public class NeighboursAction {
-    private final BabelNet babelnet;
-    private final String synsetsFilename, neighboursFilename;
-    private final int depth;
+    /**
+     * The number of synsets in a batch passed to the workers, each of which looks up the batch at once.
+     */
+    private static final int BATCH = 64;
+
+    private final Backend backend;
+    private final String synsetsFilename, neighboursFilename, graphFilename;
+    private final int depth, frontier, maxNeighbours, prefetch;
+    private final int[] fanout;
+    private final boolean directional, multisource, closure, snapshot, ordered, resume, binary, sharded;
+    private final Compression compression;
+    private final Cache<List<Edge>> edges;
+    private final ThreadLocal<Neighbourhood> neighbourhood = ThreadLocal.withInitial(Neighbourhood::new);
+    private final ThreadLocal<Neighbourhoods> neighbourhoods = ThreadLocal.withInitial(Neighbourhoods::new);
+    private final ThreadLocal<List<CompletableFuture<List<Edge>>>> loads = ThreadLocal.withInitial(ArrayList::new);
+    private final ThreadLocal<long[]> keys = ThreadLocal.withInitial(() -> new long[64]);
+    private final WorkerPool pool;
     private final Logger logger;
+    private Taxonomy taxonomy;
+    private Closure ancestors, descendants;
+    private ExecutorService prefetcher;
 
     /**
      * Initialize the action.
      *
-     * @param babelnet           the BabelNet instance.
+     * @param backend            the synset backend.
      * @param synsetsFilename    the synsets input file.
      * @param neighboursFilename the neighbours output file.
      * @param depth              the graph depth.
+     * @param directional        whether the walk should never change its direction.
+     * @param frontier           the maximal number of nodes visited at each level, if any.
+     * @param maxNeighbours      the maximal number of neighbours of a synset, if any.
+     * @param fanout             the maximal numbers of edges followed from a node at each level starting from
+     *                           the synset itself, the last of which applies to the deeper levels, if any.
+     * @param multisource        whether the synsets of a batch should be walked from at once.
+     * @param closure            whether the ancestors and the descendants of every synset should be precomputed.
+     * @param snapshot           whether the whole taxonomy should be read into memory before walking.
+     * @param graphFilename      the taxonomy graph input file, if any.
+     * @param cacheSize          the maximal number of synsets which edges are cached.
+     * @param prefetch           the number of threads loading the edges of the discovered synsets in advance, if any.
+     * @param ordered            whether the output should follow the order of the input synsets.
+     * @param resume             whether the output should be appended from the last checkpoint.
+     * @param binary             whether the output should consist of binary records rather than CSV records.
+     * @param compression        the compression of the output.
+     * @param sharded            whether every worker should write its own shard of the output.
+     * @param pool               the worker pool.
      * @param logger             the logger instance.
      */
-    public NeighboursAction(BabelNet babelnet, String synsetsFilename, String neighboursFilename, int depth, Logger logger) {
-        this.babelnet = babelnet;
+    public NeighboursAction(Backend backend, String synsetsFilename, String neighboursFilename, int depth, boolean directional, int frontier, int maxNeighbours, int[] fanout, boolean multisource, boolean closure, boolean snapshot, String graphFilename, int cacheSize, int prefetch, boolean ordered, boolean resume, boolean binary, Compression compression, boolean sharded, WorkerPool pool, Logger logger) {
+        if (depth > Byte.MAX_VALUE) throw new IllegalArgumentException("depth should fit in a byte");
+        if (closure && !snapshot && graphFilename == null) {
+            throw new IllegalArgumentException("the closure requires the taxonomy to be read or mapped");
+        }
+        if (closure && multisource) throw new IllegalArgumentException("the closure cannot be walked from several synsets");
+        if ((frontier > 0 || maxNeighbours > 0) && (closure || multisource)) {
+            throw new IllegalArgumentException("the frontier can only be capped in the single-synset walks");
+        }
+        if (fanout.length > 0 && closure) throw new IllegalArgumentException("the closure cannot limit the fan-out");
+        for (final int limit : fanout) if (limit < 1) throw new IllegalArgumentException("fan-out should be positive");
+        this.backend = backend;
         this.synsetsFilename = synsetsFilename;
         this.neighboursFilename = neighboursFilename;
         this.depth = depth;
+        this.directional = directional;
+        this.frontier = frontier;
+        this.maxNeighbours = maxNeighbours;
+        this.fanout = fanout;
+        this.multisource = multisource;
+        this.closure = closure;
+        this.snapshot = snapshot;
+        this.graphFilename = graphFilename;
+        // the edges are cached only when they are looked up in the backend rather than in the taxonomy
+        this.edges = (graphFilename == null && !snapshot) ? new Cache<>(cacheSize) : null;
+        this.prefetch = prefetch;
+        this.ordered = ordered;
+        this.resume = resume;
+        this.binary = binary;
+        this.compression = compression;
+        this.sharded = sharded;
+        this.pool = pool;
         this.logger = logger;
         logger.log(Level.INFO, "Reading synsets from \"{0}\"", synsetsFilename);
         logger.log(Level.INFO, "Writing neighbours to \"{0}\"", neighboursFilename);
         logger.log(Level.INFO, "Extracting in {0} steps", Integer.toString(depth));
+        if (directional) logger.log(Level.INFO, "Walking only up from the hypernyms and only down from the hyponyms");
+        if (frontier > 0) logger.log(Level.INFO, "Visiting at most {0} synsets per level", Integer.toString(frontier));
+        if (maxNeighbours > 0) logger.log(Level.INFO, "Visiting at most {0} synsets per walk", Integer.toString(maxNeighbours));
+        if (fanout.length > 0) logger.log(Level.INFO, "Following at most {0} edges per synset", Arrays.toString(fanout));
+        if (multisource) {
+            logger.log(Level.INFO, "Walking from up to {0} synsets at once", Integer.toString(Neighbourhoods.CAPACITY));
+        } else if (closure) {
+            logger.log(Level.INFO, "Looking up the precomputed ancestors and descendants");
+        }
+        if (graphFilename != null) {
+            logger.log(Level.INFO, "Reading graph from \"{0}\"", graphFilename);
+        } else if (snapshot) {
+            logger.log(Level.INFO, "Reading the taxonomy into memory");
+        } else {
+            logger.log(Level.INFO, "Caching edges of {0} synsets", Integer.toString(cacheSize));
+            if (prefetch > 0) logger.log(Level.INFO, "Prefetching edges in {0} threads", Integer.toString(prefetch));
+        }
     }
 
     /**
@@ -50,67 +146,610 @@ public class NeighboursAction {
      * @throws IOException when an I/O error has occurred.
      */
     public void run() throws IOException {
-        final List<String> allSynsets = synchronizedList(readSynsets(synsetsFilename));
-
-        writeRecords(neighboursFilename, neighboursCSV ->
-                allSynsets.parallelStream().forEach(synsetID -> {
-                    logger.log(Level.INFO, "Processing {0}", synsetID);
-                    try {
-                        final BabelSynset synset = babelnet.getSynset(new BabelSynsetID(synsetID));
-                        final Map<String, Integer> neighbours = walk(synset);
-                        if (!neighbours.isEmpty()) {
-                            synchronized (neighboursCSV) {
-                                neighboursCSV.printRecord(
-                                        synsetID,
-                                        neighbours.entrySet().stream().
-                                                map(entry -> entry.getKey() + ':' + entry.getValue()).
-                                                collect(joining(","))
-                                );
-                            }
-                        }
-                        logger.log(Level.INFO, "Processed {0}, found {1} neighbour(s)",
-                                new String[]{synsetID, Integer.toString(neighbours.size())});
-                    } catch (final InvalidBabelSynsetIDException | IOException ex) {
-                        throw new RuntimeException(ex);
-                    }
-                })
-        );
+        open();
+
+        writeRecords(neighboursFilename, ordered, resume, binary, compression, sharded, output -> {
+            try (final Progress progress = new Progress("synset", -1, logger).count(() -> countLines(synsetsFilename));
+                 final Workers<int[]> workers = pool.start((sequence, batch) -> {
+                     try {
+                         // the taxonomy makes looking up the synsets unnecessary
+                         final List<Synset> synsets = (taxonomy == null) ? backend.getSynsets(batch) : null;
+                         extract(sequence, batch, synsets, output);
+                         for (int i = 0; i < batch.length; i++) progress.step();
+                     } catch (final IOException ex) {
+                         throw new RuntimeException(ex);
+                     }
+                 })) {
+                watch(progress, workers);
+                workers.onFailure(output::abort);
+                workers.skip(Collections.singleton(output), progress, logger);
+                readSynsets(synsetsFilename, BATCH, batch -> workers.submit(batch, batch.length));
+            } catch (final IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
 
+        close();
         logger.log(Level.INFO, "Done");
     }
 
     /**
-     * Extract the graph ego network by walking the graph. The initial node is not included into the results.
+     * Read or map the taxonomy if it is requested.
+     *
+     * @throws IOException when an I/O error has occurred.
+     */
+    void open() throws IOException {
+        if (graphFilename != null) {
+            taxonomy = Taxonomy.map(graphFilename);
+            logger.log(Level.INFO, "Mapped {0} synset(s) and {1} edge(s)",
+                    new String[]{Integer.toString(taxonomy.size()), Integer.toString(taxonomy.edges())});
+        } else if (snapshot) {
+            taxonomy = Taxonomy.build(backend);
+            logger.log(Level.INFO, "Read {0} synset(s) and {1} edge(s)",
+                    new String[]{Integer.toString(taxonomy.size()), Integer.toString(taxonomy.edges())});
+        }
+        if (taxonomy == null && prefetch > 0) {
+            final AtomicInteger threads = new AtomicInteger();
+            // the queue is bounded, and the loads that do not fit are left to the walks themselves
+            prefetcher = new ThreadPoolExecutor(prefetch, prefetch, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.min(prefetch * 64, 1 << 16)), runnable -> {
+                final Thread thread = new Thread(runnable, "prefetcher-" + threads.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        }
+        if (closure) {
+            ancestors = Closure.build(taxonomy, depth, true, pool);
+            descendants = Closure.build(taxonomy, depth, false, pool);
+            logger.log(Level.INFO, "Computed {0} ancestor(s) and {1} descendant(s)",
+                    new String[]{Integer.toString(ancestors.size()), Integer.toString(descendants.size())});
+        }
+    }
+
+    /**
+     * Add the queue depth and, unless the taxonomy is used, the cache hit rate to the progress reports.
+     *
+     * @param progress the progress reporter.
+     * @param workers  the workers.
+     */
+    void watch(Progress progress, Workers<?> workers) {
+        progress.watch("queue", workers::getQueued);
+        if (taxonomy == null) {
+            progress.watch("cache hit rate", () -> {
+                final long hits = edges.getHits();
+                return Progress.percent(hits, hits + edges.getMisses());
+            });
+        }
+    }
+
+    /**
+     * Stop the prefetching threads and report the cache statistics.
+     */
+    void close() {
+        if (prefetcher != null) prefetcher.shutdown();
+        if (taxonomy == null) {
+            logger.log(Level.INFO, "Cache: {0} hit(s), {1} miss(es), {2} synset(s) retained",
+                    new String[]{Long.toString(edges.getHits()), Long.toString(edges.getMisses()), Integer.toString(edges.size())});
+        }
+    }
+
+    /**
+     * Extract the neighbours of the given batch of synsets and write them, walking from all of them
+     * at once if requested.
+     *
+     * @param sequence the sequence number of the first synset.
+     * @param codes    the synset ID codes.
+     * @param synsets  the synsets if they have already been loaded, otherwise, {@code null}.
+     * @param output   the record writer.
+     * @throws IOException when an I/O error has occurred.
+     */
+    void extract(long sequence, int[] codes, List<Synset> synsets, RecordWriter output) throws IOException {
+        if (!multisource) {
+            for (int i = 0; i < codes.length; i++) {
+                extract(sequence + i, codes[i], (synsets == null) ? null : synsets.get(i), output);
+            }
+            return;
+        }
+        final Neighbourhood neighbours = neighbourhood.get();
+        for (int from = 0; from < codes.length; from += Neighbourhoods.CAPACITY) {
+            final int to = Math.min(codes.length, from + Neighbourhoods.CAPACITY);
+            if (synsets != null && taxonomy == null) {
+                for (int i = from; i < to; i++) {
+                    final Synset synset = synsets.get(i);
+                    if (synset != null) edges.get(codes[i], id -> synset.getEdges());
+                }
+            }
+            final Neighbourhoods walk = (taxonomy == null) ? walk(codes, from, to) : walk(taxonomy, codes, from, to);
+            for (int i = from; i < to; i++) {
+                walk.copy(i - from, (taxonomy == null) ? codes[i] : taxonomy.indexOf(codes[i]), neighbours);
+                write(sequence + i, codes[i], neighbours, output);
+            }
+        }
+    }
+
+    /**
+     * Extract the neighbours of the given synset and write them.
+     *
+     * @param sequence the sequence number of the synset.
+     * @param code     the synset ID code.
+     * @param synset   the synset if it has already been loaded, otherwise, {@code null}.
+     * @param output   the record writer.
+     * @throws IOException when an I/O error has occurred.
+     */
+    void extract(long sequence, int code, Synset synset, RecordWriter output) throws IOException {
+        if (logger.isLoggable(Level.FINE)) logger.log(Level.FINE, "Processing {0}", SynsetIDs.decode(code));
+        if (synset != null && taxonomy == null) {
+            // the loaded synset makes looking up its own edges unnecessary
+            edges.get(code, id -> synset.getEdges());
+        }
+        final Neighbourhood neighbours;
+        if (closure) {
+            neighbours = lookup(code);
+        } else {
+            neighbours = (taxonomy == null) ? walk(code) : walk(taxonomy, code);
+        }
+        write(sequence, code, neighbours, output);
+    }
+
+    /**
+     * Write the neighbours of the given synset.
+     *
+     * @param sequence   the sequence number of the synset.
+     * @param code       the synset ID code.
+     * @param neighbours the neighbourhood of the synset.
+     * @param output     the record writer.
+     * @throws IOException when an I/O error has occurred.
+     */
+    private void write(long sequence, int code, Neighbourhood neighbours, RecordWriter output) throws IOException {
+        // the first visited node is the synset itself
+        final int count = neighbours.size() - 1;
+        if (binary) {
+            output.writeBinary(sequence, out -> {
+                if (count > 0) {
+                    out.startRecord().writeInt(code).writeInt(count);
+                    for (int i = 1; i <= count; i++) {
+                        out.writeInt(getCode(neighbours.getNode(i))).writeByte(neighbours.getLevel(i));
+                    }
+                    out.endRecord();
+                }
+            });
+        } else {
+            output.write(sequence, csv -> {
+                if (count > 0) {
+                    final StringBuilder sb = new StringBuilder(count * 16);
+                    for (int i = 1; i <= count; i++) {
+                        if (i > 1) sb.append(',');
+                        sb.append(SynsetIDs.decode(getCode(neighbours.getNode(i)))).append(':').append(neighbours.getLevel(i));
+                    }
+                    csv.printRecord(SynsetIDs.decode(code), sb);
+                }
+            });
+        }
+        if (logger.isLoggable(Level.FINE)) {
+            logger.log(Level.FINE, "Processed {0}, found {1} neighbour(s)",
+                    new String[]{SynsetIDs.decode(code), Integer.toString(count)});
+        }
+    }
+
+    /**
+     * Check whether the output consists of binary records.
+     *
+     * @return {@code true} if the output is binary, {@code false} if it is CSV.
+     */
+    boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Get the compression of the output.
+     *
+     * @return the compression.
+     */
+    Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Check whether every worker writes its own shard of the output.
+     *
+     * @return {@code true} if the output is sharded, {@code false} otherwise.
+     */
+    boolean isSharded() {
+        return sharded;
+    }
+
+    /**
+     * Get the output file.
+     *
+     * @return the neighbours output file.
+     */
+    String getNeighboursFilename() {
+        return neighboursFilename;
+    }
+
+    /**
+     * Extract the graph ego network by walking the graph. The initial node is the first node of the result.
      * Each distance provided with the plus sign if the neighbour is reachable through the hypernym,
-     * otherwise, the minus sign is written.
-     *
-     * @param source the initial node.
-     * @return the mapping between the neighbours and their distances.
-     * @throws IOException
-     */
-    private Map<String, Integer> walk(BabelSynset source) throws IOException {
-        final Map<String, Integer> neighbours = new HashMap<>();
-        neighbours.put(source.getId().toString(), 0);
-
-        final Queue<BabelSynset> queue = new LinkedList<>();
-        queue.add(source);
-
-        while (!queue.isEmpty()) {
-            final BabelSynset synset = queue.remove();
-            final List<BabelSynsetIDRelation> edges = synset.getEdges(BabelPointer.ANY_HYPERNYM, BabelPointer.ANY_HYPONYM);
-            for (final BabelSynsetIDRelation edge : edges) {
-                int step = neighbours.get(synset.getId().toString());
-                if (!neighbours.containsKey(edge.getTarget()) && Math.abs(step) < depth) {
-                    int level = (step == 0) ?
-                            (edge.getPointer().isHypernym() ? +1 : -1) :
-                            Integer.signum(step) * (Math.abs(step) + 1);
-                    neighbours.put(edge.getTarget(), level);
-                    queue.add(edge.getBabelSynsetIDTarget().toBabelSynset());
+     * otherwise, the minus sign is written. The result is reused by the next walk in the same thread.
+     * The directional walk follows only the hypernyms of the hypernyms and the hyponyms of the hyponyms,
+     * and the capped walk stops visiting the nodes of a level or the walk as a whole as soon as it has
+     * the given number of them, so the nodes reachable only through the dropped ones are found farther
+     * than they are, if at all. When a node has more edges than the fan-out allows, only the edges
+     * pointing to the synsets with the smallest IDs are followed.
+     *
+     * @param source the initial node ID code.
+     * @return the visited node ID codes and their distances.
+     */
+    Neighbourhood walk(int source) {
+        final Neighbourhood neighbours = neighbourhood.get();
+        neighbours.reset(source);
+        // the pending loads follow the order of the visited nodes
+        final List<CompletableFuture<List<Edge>>> loads = (prefetcher == null) ? null : this.loads.get();
+        if (loads != null) {
+            loads.clear();
+            loads.add(null);
+        }
+
+        // the nodes are visited in the order of their distances, so the level being visited starts at the mark
+        int distance = 0, mark = 0;
+        for (int head = 0; head < neighbours.size(); head++) {
+            final int step = neighbours.getLevel(head);
+            if (Math.abs(step) >= depth) continue;
+            if (Math.abs(step) == distance) {
+                distance++;
+                mark = neighbours.size();
+            }
+            if (isCapped(neighbours, mark)) continue;
+            final List<Edge> list = getEdges(loads, head, neighbours.getNode(head));
+            final int direction = directional ? Integer.signum(step) : 0;
+            final long threshold = threshold(list, direction, getFanout(Math.abs(step)));
+            for (int i = 0; i < list.size() && !isCapped(neighbours, mark); i++) {
+                final Edge edge = list.get(i);
+                if (!matches(edge.isHypernym(), direction) || key(edge.getTarget(), edge.isHypernym()) > threshold) continue;
+                final int level = (step == 0) ?
+                        (edge.isHypernym() ? +1 : -1) :
+                        Integer.signum(step) * (Math.abs(step) + 1);
+                if (neighbours.visit(edge.getTarget(), level) && loads != null) {
+                    loads.add((Math.abs(level) < depth) ? prefetch(edge.getTarget()) : null);
+                }
+            }
+        }
+
+        // the capped walks do not expand some of the discovered nodes
+        if (loads != null) cancel(loads);
+        return neighbours;
+    }
+
+    /**
+     * Extract the graph ego network by walking the compact taxonomy. The semantics is the same as
+     * in {@link #walk(int)}, but no backend lookups are performed, and the result contains the taxonomy
+     * indices of the nodes rather than their ID codes.
+     *
+     * @param taxonomy the taxonomy.
+     * @param source   the initial node ID code.
+     * @return the visited node indices and their distances.
+     */
+    Neighbourhood walk(Taxonomy taxonomy, int source) {
+        final Neighbourhood neighbours = neighbourhood.get();
+        final int index = taxonomy.indexOf(source);
+        neighbours.reset(index);
+        if (index < 0) return neighbours;
+
+        int distance = 0, mark = 0;
+        for (int head = 0; head < neighbours.size(); head++) {
+            final int node = neighbours.getNode(head), step = neighbours.getLevel(head);
+            if (Math.abs(step) >= depth) continue;
+            if (Math.abs(step) == distance) {
+                distance++;
+                mark = neighbours.size();
+            }
+            if (isCapped(neighbours, mark)) continue;
+            final int direction = directional ? Integer.signum(step) : 0;
+            final long threshold = threshold(taxonomy, node, direction, getFanout(Math.abs(step)));
+            for (int i = taxonomy.getEdgesStart(node); i < taxonomy.getEdgesEnd(node) && !isCapped(neighbours, mark); i++) {
+                final int edge = taxonomy.getTarget(i);
+                if (!matches(edge >= 0, direction) || key((edge < 0) ? ~edge : edge, edge >= 0) > threshold) continue;
+                neighbours.visit((edge < 0) ? ~edge : edge, (step == 0) ?
+                        (edge >= 0 ? +1 : -1) :
+                        Integer.signum(step) * (Math.abs(step) + 1));
+            }
+        }
+
+        return neighbours;
+    }
+
+    /**
+     * Extract the graph ego networks of several synsets by walking the graph from all of them at once, so
+     * the edges of every node are expanded once per level. The distances are the same as in
+     * {@link #walk(int)} except that a node reachable at the same distance both through a hypernym
+     * and through a hyponym of the source is always reached through the hypernym.
+     *
+     * @param sources the initial node ID codes.
+     * @param from    the index of the first source, inclusive.
+     * @param to      the index of the last source, exclusive.
+     * @return the visited node ID codes and the sources that have visited them.
+     */
+    Neighbourhoods walk(int[] sources, int from, int to) {
+        final Neighbourhoods walk = neighbourhoods.get();
+        walk.reset();
+        for (int i = from; i < to; i++) walk.addSource(sources[i], i - from);
+
+        final List<CompletableFuture<List<Edge>>> loads = (prefetcher == null) ? null : this.loads.get();
+        for (int level = 0; walk.advance() && level < depth; level++) {
+            final int start = walk.getStart(level);
+            if (loads != null) {
+                // the whole frontier is requested before it is expanded
+                loads.clear();
+                for (int head = start; head < walk.getEnd(level); head++) loads.add(prefetch(walk.getNode(head)));
+            }
+            for (int head = start; head < walk.getEnd(level); head++) {
+                final long up = walk.getUp(head), down = walk.getDown(head);
+                final List<Edge> list = getEdges(loads, head - start, walk.getNode(head));
+                // the directional walks select the hypernyms and the hyponyms separately
+                final boolean separate = directional && level > 0;
+                final long upThreshold = threshold(list, separate ? +1 : 0, getFanout(level)),
+                        downThreshold = separate ? threshold(list, -1, getFanout(level)) : upThreshold;
+                for (int i = 0; i < list.size(); i++) {
+                    final Edge edge = list.get(i);
+                    if (key(edge.getTarget(), edge.isHypernym()) > (edge.isHypernym() ? upThreshold : downThreshold)) continue;
+                    if (level == 0) {
+                        walk.visit(edge.getTarget(), edge.isHypernym() ? up : 0, edge.isHypernym() ? 0 : up);
+                    } else if (!directional) {
+                        walk.visit(edge.getTarget(), up, down);
+                    } else if (edge.isHypernym() ? up != 0 : down != 0) {
+                        walk.visit(edge.getTarget(), edge.isHypernym() ? up : 0, edge.isHypernym() ? 0 : down);
+                    }
                 }
             }
         }
 
-        neighbours.remove(source.getId().toString());
+        return walk;
+    }
+
+    /**
+     * Extract the graph ego networks of several synsets by walking the compact taxonomy from all of them
+     * at once. The semantics is the same as in {@link #walk(int[], int, int)}, but the result contains
+     * the taxonomy indices of the nodes rather than their ID codes.
+     *
+     * @param taxonomy the taxonomy.
+     * @param sources  the initial node ID codes.
+     * @param from     the index of the first source, inclusive.
+     * @param to       the index of the last source, exclusive.
+     * @return the visited node indices and the sources that have visited them.
+     */
+    Neighbourhoods walk(Taxonomy taxonomy, int[] sources, int from, int to) {
+        final Neighbourhoods walk = neighbourhoods.get();
+        walk.reset();
+        for (int i = from; i < to; i++) {
+            final int index = taxonomy.indexOf(sources[i]);
+            if (index >= 0) walk.addSource(index, i - from);
+        }
+
+        for (int level = 0; walk.advance() && level < depth; level++) {
+            for (int head = walk.getStart(level); head < walk.getEnd(level); head++) {
+                final int node = walk.getNode(head);
+                final long up = walk.getUp(head), down = walk.getDown(head);
+                final boolean separate = directional && level > 0;
+                final long upThreshold = threshold(taxonomy, node, separate ? +1 : 0, getFanout(level)),
+                        downThreshold = separate ? threshold(taxonomy, node, -1, getFanout(level)) : upThreshold;
+                for (int i = taxonomy.getEdgesStart(node); i < taxonomy.getEdgesEnd(node); i++) {
+                    final int edge = taxonomy.getTarget(i);
+                    if (key((edge < 0) ? ~edge : edge, edge >= 0) > ((edge >= 0) ? upThreshold : downThreshold)) continue;
+                    if (level == 0) {
+                        walk.visit((edge < 0) ? ~edge : edge, (edge >= 0) ? up : 0, (edge >= 0) ? 0 : up);
+                    } else if (!directional) {
+                        walk.visit((edge < 0) ? ~edge : edge, up, down);
+                    } else if ((edge >= 0) ? up != 0 : down != 0) {
+                        walk.visit((edge < 0) ? ~edge : edge, (edge >= 0) ? up : 0, (edge >= 0) ? 0 : down);
+                    }
+                }
+            }
+        }
+
+        return walk;
+    }
+
+    /**
+     * Extract the ego taxonomy of the synset from the precomputed closures: the ancestors are provided
+     * with the plus sign and the descendants are provided with the minus sign. Unlike {@link #walk(int)},
+     * the walk never changes its direction, so, e.g., the co-hyponyms of the synset are not included.
+     *
+     * @param source the synset ID code.
+     * @return the taxonomy indices of the neighbours and their distances.
+     */
+    Neighbourhood lookup(int source) {
+        final Neighbourhood neighbours = neighbourhood.get();
+        final int index = taxonomy.indexOf(source);
+        neighbours.reset(index);
+        if (index < 0) return neighbours;
+
+        // the entries are sorted by the target, so they are scanned once per level to keep the walk order
+        for (int level = 1; level <= depth; level++) {
+            for (int i = ancestors.getStart(index); i < ancestors.getEnd(index); i++) {
+                if (ancestors.getDistance(i) == level) neighbours.visit(ancestors.getNode(i), level);
+            }
+            for (int i = descendants.getStart(index); i < descendants.getEnd(index); i++) {
+                if (descendants.getDistance(i) == level) neighbours.visit(descendants.getNode(i), -level);
+            }
+        }
+
         return neighbours;
     }
+
+    /**
+     * Check whether the level being visited has reached the frontier cap or the walk has reached
+     * the maximal number of neighbours.
+     *
+     * @param neighbours the visited nodes.
+     * @param mark       the index of the first node of the level.
+     * @return {@code true} if no more nodes should be visited at this level, {@code false} otherwise.
+     */
+    private boolean isCapped(Neighbourhood neighbours, int mark) {
+        // the first visited node is the synset itself
+        return (frontier > 0 && neighbours.size() - mark >= frontier) ||
+                (maxNeighbours > 0 && neighbours.size() > maxNeighbours);
+    }
+
+    /**
+     * Get the maximal number of edges followed from a node.
+     *
+     * @param distance the distance of the node from the synset.
+     * @return the maximal number of edges.
+     */
+    private int getFanout(int distance) {
+        return (fanout.length == 0) ? Integer.MAX_VALUE : fanout[Math.min(distance, fanout.length - 1)];
+    }
+
+    /**
+     * Check whether the edge can be followed in the given direction.
+     *
+     * @param hypernym  whether the edge points to a hypernym.
+     * @param direction the direction: positive for the hypernyms, negative for the hyponyms, and zero for both.
+     * @return {@code true} if the edge can be followed, {@code false} otherwise.
+     */
+    private static boolean matches(boolean hypernym, int direction) {
+        return direction == 0 || hypernym == (direction > 0);
+    }
+
+    /**
+     * Order the edges by the target and then put the hypernym first.
+     *
+     * @param target   the target synset ID code or taxonomy index.
+     * @param hypernym whether the edge points to a hypernym.
+     * @return the sort key.
+     */
+    private static long key(int target, boolean hypernym) {
+        return ((long) target << 1) | (hypernym ? 0 : 1);
+    }
+
+    /**
+     * Find the largest key of the edges to follow, so only the given number of edges with the smallest keys
+     * are followed. The synset ID codes and the taxonomy indices have the same order, so the selection does
+     * not depend on whether the taxonomy is used.
+     *
+     * @param list      the edges.
+     * @param direction the direction of the edges to select.
+     * @param limit     the maximal number of edges.
+     * @return the largest key of the selected edges.
+     */
+    private long threshold(List<Edge> list, int direction, int limit) {
+        if (list.size() <= limit) return Long.MAX_VALUE;
+        final long[] keys = getKeys(list.size());
+        int count = 0;
+        for (int i = 0; i < list.size(); i++) {
+            final Edge edge = list.get(i);
+            if (matches(edge.isHypernym(), direction)) keys[count++] = key(edge.getTarget(), edge.isHypernym());
+        }
+        return threshold(keys, count, limit);
+    }
+
+    /**
+     * Find the largest key of the edges of the taxonomy node to follow.
+     *
+     * @param taxonomy  the taxonomy.
+     * @param node      the node index.
+     * @param direction the direction of the edges to select.
+     * @param limit     the maximal number of edges.
+     * @return the largest key of the selected edges.
+     * @see #threshold(List, int, int)
+     */
+    private long threshold(Taxonomy taxonomy, int node, int direction, int limit) {
+        final int start = taxonomy.getEdgesStart(node), end = taxonomy.getEdgesEnd(node);
+        if (end - start <= limit) return Long.MAX_VALUE;
+        final long[] keys = getKeys(end - start);
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            final int edge = taxonomy.getTarget(i);
+            if (matches(edge >= 0, direction)) keys[count++] = key((edge < 0) ? ~edge : edge, edge >= 0);
+        }
+        return threshold(keys, count, limit);
+    }
+
+    private static long threshold(long[] keys, int count, int limit) {
+        if (count <= limit) return Long.MAX_VALUE;
+        Arrays.sort(keys, 0, count);
+        return keys[limit - 1];
+    }
+
+    /**
+     * Get the per-thread buffer of the edge keys.
+     *
+     * @param size the minimal size of the buffer.
+     * @return the buffer.
+     */
+    private long[] getKeys(int size) {
+        long[] buffer = keys.get();
+        if (buffer.length < size) {
+            buffer = new long[Math.max(size, buffer.length * 2)];
+            keys.set(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Get the ID code of the node visited by a walk.
+     *
+     * @param node the synset ID code or, if the taxonomy is used, the taxonomy index.
+     * @return the synset ID code.
+     */
+    private int getCode(int node) {
+        return (taxonomy == null) ? node : taxonomy.getCode(node);
+    }
+
+    /**
+     * Request the hypernymy and hyponymy edges of the given synset from the prefetching threads unless
+     * they are cached or the prefetching queue is full.
+     *
+     * @param code the synset ID code.
+     * @return the pending edges, or {@code null} if the edges should be loaded when needed.
+     */
+    private CompletableFuture<List<Edge>> prefetch(int code) {
+        final List<Edge> cached = edges.getIfPresent(code);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+        try {
+            return CompletableFuture.supplyAsync(() -> edges.get(code, this::getEdges), prefetcher);
+        } catch (final RejectedExecutionException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Cancel the pending loads that have not been consumed by the walk, so the prefetching threads skip
+     * the ones that have not started yet, and forget them.
+     *
+     * @param loads the pending loads.
+     */
+    private static void cancel(List<CompletableFuture<List<Edge>>> loads) {
+        for (final CompletableFuture<List<Edge>> load : loads) if (load != null) load.cancel(false);
+        loads.clear();
+    }
+
+    /**
+     * Get the hypernymy and hyponymy edges of the given synset, waiting for them if they have been prefetched.
+     *
+     * @param loads    the pending loads, or {@code null} if nothing is prefetched.
+     * @param position the position of the synset among the pending loads.
+     * @param code     the synset ID code.
+     * @return the edges, or the empty list if there is no such synset.
+     */
+    private List<Edge> getEdges(List<CompletableFuture<List<Edge>>> loads, int position, int code) {
+        final CompletableFuture<List<Edge>> load = (loads == null) ? null : loads.set(position, null);
+        return (load == null) ? edges.get(code, this::getEdges) : load.join();
+    }
+
+    /**
+     * Load the hypernymy and hyponymy edges of the given synset from the backend.
+     *
+     * @param code the synset ID code.
+     * @return the edges, or the empty list if there is no such synset.
+     */
+    private List<Edge> getEdges(int code) {
+        try {
+            final Synset synset = backend.getSynset(code);
+            if (synset == null) return Collections.emptyList();
+            return synset.getEdges();
+        } catch (final IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
 }
@@ -1,18 +1,22 @@
 package de.tudarmstadt.lt.babelnet.extract.actions;
 
-import it.uniroma1.lcl.babelnet.*;
+import de.tudarmstadt.lt.babelnet.extract.Compression;
+import de.tudarmstadt.lt.babelnet.extract.Progress;
+import de.tudarmstadt.lt.babelnet.extract.RecordWriter;
+import de.tudarmstadt.lt.babelnet.extract.WorkerPool;
+import de.tudarmstadt.lt.babelnet.extract.Workers;
+import de.tudarmstadt.lt.babelnet.extract.backend.Backend;
+import de.tudarmstadt.lt.babelnet.extract.backend.Sense;
+import de.tudarmstadt.lt.babelnet.extract.backend.Synset;
+import de.tudarmstadt.lt.babelnet.extract.data.SynsetIDs;
 import it.uniroma1.lcl.jlt.util.Language;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import static de.tudarmstadt.lt.babelnet.extract.Resource.readSynsets;
-import static de.tudarmstadt.lt.babelnet.extract.Resource.writeRecords;
-import static java.util.Collections.synchronizedList;
+import static de.tudarmstadt.lt.babelnet.extract.Resource.*;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toMap;
 
@@ -22,28 +26,75 @@ import static java.util.stream.Collectors.toMap;
  * @author Dmitry Ustalov
  */
 public class SensesAction {
-    private final BabelNet babelnet;
-    private final Language language;
-    private final String synsetsFilename, sensesFilename;
+    /**
+     * The number of synsets in a batch passed to the workers, each of which looks up the batch at once.
+     */
+    private static final int BATCH = 64;
+
+    private final Backend backend;
+    private final List<Language> languages;
+    private final String synsetsFilename;
+    private final Map<Language, String> sensesFilenames;
+    private final boolean ordered, resume, binary, sharded;
+    private final Compression compression;
+    private final WorkerPool pool;
     private final Logger logger;
 
     /**
      * Initialize the action.
      *
-     * @param babelnet        the BabelNet instance.
-     * @param language        the language.
+     * @param backend         the synset backend.
+     * @param languages       the languages, each of which is written to its own file if more than one.
      * @param synsetsFilename the synsets input file.
      * @param sensesFilename  the senses output file.
+     * @param ordered         whether the output should follow the order of the input synsets.
+     * @param resume          whether the output should be appended from the last checkpoint.
+     * @param binary          whether the output should consist of binary records rather than CSV records.
+     * @param compression     the compression of the outputs.
+     * @param sharded         whether every worker should write its own shard of each output.
+     * @param pool            the worker pool.
      * @param logger          the logger instance.
      */
-    public SensesAction(BabelNet babelnet, Language language, String synsetsFilename, String sensesFilename, Logger logger) {
-        this.babelnet = babelnet;
-        this.language = language;
+    public SensesAction(Backend backend, List<Language> languages, String synsetsFilename, String sensesFilename, boolean ordered, boolean resume, boolean binary, Compression compression, boolean sharded, WorkerPool pool, Logger logger) {
+        this.backend = backend;
+        this.languages = languages;
         this.synsetsFilename = synsetsFilename;
-        this.sensesFilename = sensesFilename;
+        this.sensesFilenames = languageFilenames(sensesFilename, languages);
+        this.ordered = ordered;
+        this.resume = resume;
+        this.binary = binary;
+        this.compression = compression;
+        this.sharded = sharded;
+        this.pool = pool;
         this.logger = logger;
         logger.log(Level.INFO, "Reading synsets from \"{0}\"", synsetsFilename);
-        logger.log(Level.INFO, "Writing senses to \"{0}\"", sensesFilename);
+        for (final String filename : sensesFilenames.values()) {
+            logger.log(Level.INFO, "Writing senses to \"{0}\"", filename);
+        }
+    }
+
+    /**
+     * Get the senses of the given synset in the given languages. When more than one language is requested,
+     * the senses are retrieved at once and then grouped by their languages.
+     *
+     * @param synset    the synset.
+     * @param languages the languages.
+     * @return the mapping between the languages and the non-empty lists of senses.
+     */
+    static Map<Language, List<Sense>> getSenses(Synset synset, Collection<Language> languages) {
+        final Map<Language, List<Sense>> senses = new EnumMap<>(Language.class);
+        if (languages.size() == 1) {
+            final Language language = languages.iterator().next();
+            final List<Sense> languageSenses = synset.getSenses(language);
+            if (!languageSenses.isEmpty()) senses.put(language, languageSenses);
+        } else {
+            for (final Sense sense : synset.getSenses()) {
+                if (languages.contains(sense.getLanguage())) {
+                    senses.computeIfAbsent(sense.getLanguage(), language -> new ArrayList<>()).add(sense);
+                }
+            }
+        }
+        return senses;
     }
 
     /**
@@ -52,33 +103,106 @@ public class SensesAction {
      * @throws IOException when an I/O error has occurred.
      */
     public void run() throws IOException {
-        final List<String> allSynsets = synchronizedList(readSynsets(synsetsFilename));
+        writeRecords(sensesFilenames, ordered, resume, binary, compression, sharded, outputs -> {
+            try (final Progress progress = new Progress("synset", -1, logger).count(() -> countLines(synsetsFilename));
+                 final Workers<int[]> workers = pool.start((sequence, batch) -> {
+                     try {
+                         final List<Synset> synsets = backend.getSynsets(batch);
+                         for (int i = 0; i < batch.length; i++) {
+                             extract(sequence + i, batch[i], synsets.get(i), outputs);
+                             progress.step();
+                         }
+                     } catch (final IOException ex) {
+                         throw new RuntimeException(ex);
+                     }
+                 })) {
+                progress.watch("queue", workers::getQueued);
+                workers.onFailure(() -> outputs.values().forEach(RecordWriter::abort));
+                workers.skip(outputs.values(), progress, logger);
+                readSynsets(synsetsFilename, BATCH, batch -> workers.submit(batch, batch.length));
+            } catch (final IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+
+        logger.log(Level.INFO, "Done");
+    }
 
-        writeRecords(sensesFilename, csv ->
-                allSynsets.parallelStream().forEach(synsetID -> {
-                    try {
-                        final BabelSynset synset = babelnet.getSynset(new BabelSynsetID(synsetID));
-                        final Map<String, Integer> senses = synset.getSenses(language).stream().
-                                collect(toMap(sense -> sense.getSimpleLemma().replaceAll("_", " "),
-                                        BabelSense::getFrequency,
-                                        (v1, v2) -> v1,
-                                        () -> new TreeMap<>(String.CASE_INSENSITIVE_ORDER)));
-                        if (!senses.isEmpty()) {
-                            synchronized (csv) {
-                                csv.printRecord(
-                                        synsetID,
-                                        senses.entrySet().stream().map(entry -> entry.getKey() + ':' + entry.getValue()).
-                                                collect(joining(","))
-                                );
-                            }
+    /**
+     * Extract the senses of the given synset and write them.
+     *
+     * @param sequence the sequence number of the synset.
+     * @param code     the synset ID code.
+     * @param synset   the synset, or {@code null} if there is no such synset.
+     * @param outputs  the mapping between the languages and the record writers.
+     * @throws IOException when an I/O error has occurred.
+     */
+    void extract(long sequence, int code, Synset synset, Map<Language, RecordWriter> outputs) throws IOException {
+        final Map<Language, List<Sense>> allSenses = (synset == null) ? Collections.emptyMap() : getSenses(synset, languages);
+        for (final Map.Entry<Language, RecordWriter> output : outputs.entrySet()) {
+            final Map<String, Integer> senses = allSenses.getOrDefault(output.getKey(), Collections.emptyList()).stream().
+                    collect(toMap(sense -> sense.getSimpleLemma().replaceAll("_", " "),
+                            Sense::getFrequency,
+                            (v1, v2) -> v1,
+                            () -> new TreeMap<>(String.CASE_INSENSITIVE_ORDER)));
+            if (binary) {
+                output.getValue().writeBinary(sequence, out -> {
+                    if (!senses.isEmpty()) {
+                        out.startRecord().writeInt(code).writeInt(senses.size());
+                        for (final Map.Entry<String, Integer> entry : senses.entrySet()) {
+                            out.writeString(entry.getKey()).writeInt(entry.getValue());
                         }
-                        logger.log(Level.INFO, "Extracted {0}", synsetID);
-                    } catch (final InvalidBabelSynsetIDException | IOException ex) {
-                        throw new RuntimeException(ex);
+                        out.endRecord();
+                    }
+                });
+            } else {
+                output.getValue().write(sequence, csv -> {
+                    if (!senses.isEmpty()) {
+                        csv.printRecord(
+                                SynsetIDs.decode(code),
+                                senses.entrySet().stream().map(entry -> entry.getKey() + ':' + entry.getValue()).
+                                        collect(joining(","))
+                        );
                     }
-                })
-        );
+                });
+            }
+        }
+        if (logger.isLoggable(Level.FINE)) logger.log(Level.FINE, "Extracted {0}", SynsetIDs.decode(code));
+    }
 
-        logger.log(Level.INFO, "Done");
+    /**
+     * Check whether the outputs consist of binary records.
+     *
+     * @return {@code true} if the outputs are binary, {@code false} if they are CSV.
+     */
+    boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Get the compression of the outputs.
+     *
+     * @return the compression.
+     */
+    Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Check whether every worker writes its own shard of each output.
+     *
+     * @return {@code true} if the outputs are sharded, {@code false} otherwise.
+     */
+    boolean isSharded() {
+        return sharded;
+    }
+
+    /**
+     * Get the output files.
+     *
+     * @return the mapping between the languages and the senses output files.
+     */
+    Map<Language, String> getSensesFilenames() {
+        return sensesFilenames;
     }
 }
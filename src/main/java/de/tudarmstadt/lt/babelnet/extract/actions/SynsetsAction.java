@@ -1,70 +1,127 @@
 package de.tudarmstadt.lt.babelnet.extract.actions;
 
-import it.uniroma1.lcl.babelnet.BabelNet;
-import it.uniroma1.lcl.babelnet.BabelSense;
+import de.tudarmstadt.lt.babelnet.extract.Compression;
+import de.tudarmstadt.lt.babelnet.extract.Progress;
+import de.tudarmstadt.lt.babelnet.extract.RecordWriter;
+import de.tudarmstadt.lt.babelnet.extract.WorkerPool;
+import de.tudarmstadt.lt.babelnet.extract.Workers;
+import de.tudarmstadt.lt.babelnet.extract.backend.Backend;
+import de.tudarmstadt.lt.babelnet.extract.backend.Sense;
+import de.tudarmstadt.lt.babelnet.extract.backend.Synset;
 import it.uniroma1.lcl.jlt.util.Language;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.Set;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import static de.tudarmstadt.lt.babelnet.extract.Resource.writeRecords;
+import static de.tudarmstadt.lt.babelnet.extract.Resource.*;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toSet;
 
 /**
- * The synsets action extracts the list of synsets for the given language.
+ * The synsets action extracts the list of synsets for the given languages in a single pass.
  *
  * @author Dmitry Ustalov
  */
 public class SynsetsAction {
-    private final BabelNet babelnet;
-    private final Language language;
-    private final String synsetsFilename;
+    private final Backend backend;
+    private final List<Language> languages;
+    private final Map<Language, String> synsetsFilenames;
+    private final WorkerPool pool;
+    private final boolean sharded, merge;
+    private final Compression compression;
     private final Logger logger;
 
     /**
      * Initialize the action.
      *
-     * @param babelnet        the BabelNet instance.
-     * @param language        the language.
+     * @param backend         the synset backend.
+     * @param languages       the languages, each of which is written to its own file if more than one.
      * @param synsetsFilename the synsets output file.
+     * @param pool            the worker pool.
+     * @param sharded         whether every worker should write its own shard of each output file.
+     * @param merge           whether the shards should be merged into the synsets output file.
+     * @param compression     the compression of the outputs.
      * @param logger          the logger instance.
      */
-    public SynsetsAction(BabelNet babelnet, Language language, String synsetsFilename, Logger logger) {
-        this.babelnet = babelnet;
-        this.language = language;
-        this.synsetsFilename = synsetsFilename;
+    public SynsetsAction(Backend backend, List<Language> languages, String synsetsFilename, WorkerPool pool, boolean sharded, boolean merge, Compression compression, Logger logger) {
+        this.backend = backend;
+        this.languages = languages;
+        this.synsetsFilenames = languageFilenames(synsetsFilename, languages);
+        this.pool = pool;
+        this.sharded = sharded;
+        this.merge = merge;
+        this.compression = compression;
         this.logger = logger;
-        logger.log(Level.INFO, "Writing synsets to \"{0}\"", synsetsFilename);
+        for (final String filename : synsetsFilenames.values()) {
+            if (sharded) {
+                logger.log(Level.INFO, "Writing synsets to {0} shards of \"{1}\"",
+                        new String[]{Integer.toString(pool.getParallelism()), filename});
+            } else {
+                logger.log(Level.INFO, "Writing synsets to \"{0}\"", filename);
+            }
+        }
     }
 
     /**
-     * Process the data and write the outputs.
+     * Process the data and write the outputs. The synsets are read using the single iterator, which is the only
+     * way to enumerate them in the BabelNet API, and partitioned among the workers. In the sharded mode, every
+     * worker writes its own shards, so the workers do not share any state.
      *
      * @throws IOException when an I/O error has occurred.
      */
     public void run() throws IOException {
-        writeRecords(synsetsFilename, csv -> {
-            babelnet.getSynsetIterator().forEachRemaining(synset -> {
-                try {
-                    final List<BabelSense> senses = synset.getSenses(language);
-                    if (senses.isEmpty()) return;
-
-                    final String synsetID = synset.getId().toString();
-
-                    final Set<String> lemmas = senses.stream().map(BabelSense::getSimpleLemma).collect(toSet());
-                    csv.printRecord(synsetID, lemmas.size(), lemmas.stream().collect(joining(", ")));
-
-                    logger.log(Level.INFO, "Extracted {0}", synsetID);
-                } catch (final IOException ex) {
-                    throw new RuntimeException(ex);
+        // the total number of synsets is not known in advance
+        try (final Progress progress = new Progress("synset", -1, logger)) {
+            writeRecords(synsetsFilenames, false, false, false, compression, sharded, outputs -> {
+                try (final Workers<Synset> workers = pool.start(synset -> {
+                    try {
+                        extract(synset, outputs);
+                        progress.step();
+                    } catch (final IOException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                })) {
+                    progress.watch("queue", workers::getQueued);
+                    backend.getSynsetIterator().forEachRemaining(workers::submit);
                 }
             });
-        });
+        }
+
+        if (sharded && merge) {
+            for (final String filename : synsetsFilenames.values()) {
+                final Map<String, Long> shards = readManifest(filename);
+                logger.log(Level.INFO, "Merging {0} shard(s) into \"{1}\"",
+                        new String[]{Integer.toString(shards.size()), filename});
+                mergeFiles(filename, shards.keySet());
+                Files.delete(Paths.get(filename + ".manifest"));
+            }
+        }
 
         logger.log(Level.INFO, "Done");
     }
+
+    /**
+     * Write the lemmas of the given synset for each language it has senses in.
+     *
+     * @param synset  the synset.
+     * @param outputs the mapping between the languages and the record writers.
+     * @throws IOException when an I/O error has occurred.
+     */
+    private void extract(Synset synset, Map<Language, RecordWriter> outputs) throws IOException {
+        final Map<Language, List<Sense>> senses = SensesAction.getSenses(synset, languages);
+        if (senses.isEmpty()) return;
+
+        final String synsetID = synset.getId();
+
+        for (final Map.Entry<Language, List<Sense>> entry : senses.entrySet()) {
+            final Set<String> lemmas = entry.getValue().stream().map(Sense::getSimpleLemma).collect(toSet());
+            outputs.get(entry.getKey()).write(csv -> csv.printRecord(synsetID, lemmas.size(), lemmas.stream().collect(joining(", "))));
+        }
+
+        if (logger.isLoggable(Level.FINE)) logger.log(Level.FINE, "Extracted {0}", synsetID);
+    }
 }
@@ -0,0 +1,110 @@
+package de.tudarmstadt.lt.babelnet.extract.backend;
+
+import de.tudarmstadt.lt.babelnet.extract.data.SynsetIDs;
+import it.uniroma1.lcl.babelnet.*;
+import it.uniroma1.lcl.babelnet.data.BabelPOS;
+import it.uniroma1.lcl.babelnet.data.BabelPointer;
+import it.uniroma1.lcl.jlt.util.Language;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The backend using the BabelNet API and its offline index.
+ *
+ * @author Dmitry Ustalov
+ */
+public class BabelNetBackend implements Backend {
+    private final BabelNet babelnet;
+
+    /**
+     * Initialize the backend.
+     *
+     * @param babelnet the BabelNet instance.
+     */
+    public BabelNetBackend(BabelNet babelnet) {
+        this.babelnet = babelnet;
+    }
+
+    @Override
+    public Synset getSynset(String synsetID) throws IOException {
+        final BabelSynsetID id;
+        try {
+            id = new BabelSynsetID(synsetID);
+        } catch (final InvalidBabelSynsetIDException ex) {
+            throw new IllegalArgumentException("Invalid synset ID: " + synsetID, ex);
+        }
+        final BabelSynset synset = babelnet.getSynset(id);
+        return (synset == null) ? null : new BabelNetSynset(synset);
+    }
+
+    @Override
+    public List<Synset> getSynsets(String lemma, Language language, BabelPOS pos) throws IOException {
+        final List<BabelSynset> synsets = babelnet.getSynsets(lemma, language, pos);
+        final List<Synset> result = new ArrayList<>(synsets.size());
+        for (final BabelSynset synset : synsets) result.add(new BabelNetSynset(synset));
+        return result;
+    }
+
+    @Override
+    public Iterator<Synset> getSynsetIterator() {
+        final Iterator<BabelSynset> iterator = babelnet.getSynsetIterator();
+        return new Iterator<Synset>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Synset next() {
+                return new BabelNetSynset(iterator.next());
+            }
+        };
+    }
+
+    /**
+     * A synset backed by the BabelNet API synset.
+     */
+    private static class BabelNetSynset implements Synset {
+        private final BabelSynset synset;
+
+        BabelNetSynset(BabelSynset synset) {
+            this.synset = synset;
+        }
+
+        @Override
+        public String getId() {
+            return synset.getId().toString();
+        }
+
+        @Override
+        public List<Sense> getSenses() {
+            return senses(synset.getSenses());
+        }
+
+        @Override
+        public List<Sense> getSenses(Language language) {
+            return senses(synset.getSenses(language));
+        }
+
+        @Override
+        public List<Edge> getEdges() {
+            final List<BabelSynsetIDRelation> relations = synset.getEdges(BabelPointer.ANY_HYPERNYM, BabelPointer.ANY_HYPONYM);
+            final List<Edge> edges = new ArrayList<>(relations.size());
+            for (final BabelSynsetIDRelation relation : relations) {
+                edges.add(new Edge(SynsetIDs.encode(relation.getTarget()), relation.getPointer().isHypernym()));
+            }
+            return edges;
+        }
+
+        private static List<Sense> senses(List<BabelSense> babelSenses) {
+            final List<Sense> senses = new ArrayList<>(babelSenses.size());
+            for (final BabelSense sense : babelSenses) {
+                senses.add(new Sense(sense.getSimpleLemma(), sense.getFrequency(), sense.getLanguage()));
+            }
+            return senses;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package de.tudarmstadt.lt.babelnet.extract.backend;
+
+import de.tudarmstadt.lt.babelnet.extract.data.SynsetIDs;
+import it.uniroma1.lcl.babelnet.data.BabelPOS;
+import it.uniroma1.lcl.jlt.util.Language;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The source of synsets used by the actions. It covers only the part of the BabelNet API the actions need,
+ * so it can be implemented without the BabelNet index, e.g., for testing and benchmarking.
+ *
+ * @author Dmitry Ustalov
+ */
+public interface Backend {
+    /**
+     * Get the synset by its ID.
+     *
+     * @param synsetID the synset ID.
+     * @return the synset, or {@code null} if there is no such synset.
+     * @throws IOException when an I/O error has occurred.
+     * @throws IllegalArgumentException when the synset ID is malformed.
+     */
+    Synset getSynset(String synsetID) throws IOException;
+
+    /**
+     * Get the synset by its ID code.
+     *
+     * @param code the synset ID code, see {@link SynsetIDs}.
+     * @return the synset, or {@code null} if there is no such synset.
+     * @throws IOException when an I/O error has occurred.
+     */
+    default Synset getSynset(int code) throws IOException {
+        return getSynset(SynsetIDs.decode(code));
+    }
+
+    /**
+     * Get the synsets by their ID codes at once. The default implementation performs sorted lookups, i.e., in the
+     * order of the codes, and returns the synsets in the order of the request.
+     *
+     * @param codes the synset ID codes.
+     * @return the synsets in the order of the given codes, each of which is {@code null} if there is no such synset.
+     * @throws IOException when an I/O error has occurred.
+     */
+    default List<Synset> getSynsets(int[] codes) throws IOException {
+        // every code is packed with its position, so sorting does not box anything
+        final long[] order = new long[codes.length];
+        for (int i = 0; i < order.length; i++) order[i] = (long) codes[i] << Integer.SIZE | i;
+        Arrays.sort(order);
+        final Synset[] synsets = new Synset[order.length];
+        for (final long entry : order) synsets[(int) entry] = getSynset((int) (entry >>> Integer.SIZE));
+        return Arrays.asList(synsets);
+    }
+
+    /**
+     * Get the synsets containing the given lemma.
+     *
+     * @param lemma    the lemma.
+     * @param language the language of the lemma.
+     * @param pos      the part of speech.
+     * @return the synsets.
+     * @throws IOException when an I/O error has occurred.
+     */
+    List<Synset> getSynsets(String lemma, Language language, BabelPOS pos) throws IOException;
+
+    /**
+     * Iterate over all the synsets.
+     *
+     * @return the iterator.
+     */
+    Iterator<Synset> getSynsetIterator();
+}
@@ -0,0 +1,42 @@
+package de.tudarmstadt.lt.babelnet.extract.backend;
+
+import de.tudarmstadt.lt.babelnet.extract.data.SynsetIDs;
+
+/**
+ * A hypernymy or hyponymy edge of a synset.
+ *
+ * @author Dmitry Ustalov
+ */
+public final class Edge {
+    private final int target;
+    private final boolean hypernym;
+
+    /**
+     * Initialize the edge.
+     *
+     * @param target   the target synset ID code, see {@link SynsetIDs}.
+     * @param hypernym whether the target is a hypernym, otherwise, it is a hyponym.
+     */
+    public Edge(int target, boolean hypernym) {
+        this.target = target;
+        this.hypernym = hypernym;
+    }
+
+    /**
+     * Get the target synset ID code.
+     *
+     * @return the target synset ID code.
+     */
+    public int getTarget() {
+        return target;
+    }
+
+    /**
+     * Check whether the target is a hypernym.
+     *
+     * @return {@code true} if the target is a hypernym, {@code false} if it is a hyponym.
+     */
+    public boolean isHypernym() {
+        return hypernym;
+    }
+}
@@ -0,0 +1,217 @@
+package de.tudarmstadt.lt.babelnet.extract.backend;
+
+import de.tudarmstadt.lt.babelnet.extract.Resource;
+import de.tudarmstadt.lt.babelnet.extract.data.SynsetIDs;
+import it.uniroma1.lcl.babelnet.data.BabelPOS;
+import it.uniroma1.lcl.jlt.util.Language;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * The backend holding all the synsets in memory. It is meant for testing and benchmarking without the BabelNet
+ * index, so the synsets are either added using the {@link Builder} or read from a fixture file.
+ * <p>
+ * The fixture is a tab-separated file, each record of which starts with its type. The {@code sense} records
+ * contain the synset ID, the language, the lemma and the frequency, e.g., {@code sense bn:00000001n en apple 5}.
+ * The {@code edge} records contain the source synset ID, the target synset ID and either {@code hypernym}
+ * or {@code hyponym}. The {@code synset} records contain only the synset ID and declare the synsets
+ * having neither senses nor edges. The part of speech of a synset is determined by the last character of its ID.
+ *
+ * @author Dmitry Ustalov
+ */
+public class MemoryBackend implements Backend {
+    private final Map<Integer, Synset> synsets;
+    private final Map<String, List<Synset>> lemmas;
+
+    private MemoryBackend(Map<Integer, Synset> synsets, Map<String, List<Synset>> lemmas) {
+        this.synsets = synsets;
+        this.lemmas = lemmas;
+    }
+
+    /**
+     * Read the fixture file.
+     *
+     * @param filename the file to read.
+     * @return the backend.
+     * @throws IOException when an I/O error has occurred.
+     * @throws IllegalArgumentException when the file is malformed.
+     */
+    public static MemoryBackend read(String filename) throws IOException {
+        return Resource.readRecords(filename, csv -> {
+            final Builder builder = new Builder();
+            for (final CSVRecord row : csv) {
+                switch (row.get(0)) {
+                    case "synset":
+                        builder.addSynset(row.get(1));
+                        break;
+                    case "sense":
+                        final Language language = Resource.LANGUAGES.get(row.get(2).toLowerCase());
+                        if (language == null) throw new IllegalArgumentException("Unknown language: " + row.get(2));
+                        builder.addSense(row.get(1), new Sense(row.get(3), Integer.parseInt(row.get(4)), language));
+                        break;
+                    case "edge":
+                        if (!row.get(3).equals("hypernym") && !row.get(3).equals("hyponym")) {
+                            throw new IllegalArgumentException("Unknown edge type: " + row.get(3));
+                        }
+                        builder.addEdge(row.get(1), new Edge(SynsetIDs.encode(row.get(2)), row.get(3).equals("hypernym")));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown record type: " + row.get(0));
+                }
+            }
+            return builder.build();
+        });
+    }
+
+    /**
+     * Get the number of synsets.
+     *
+     * @return the number of synsets.
+     */
+    public int size() {
+        return synsets.size();
+    }
+
+    @Override
+    public Synset getSynset(String synsetID) {
+        return synsets.get(SynsetIDs.encode(synsetID));
+    }
+
+    @Override
+    public Synset getSynset(int code) {
+        return synsets.get(code);
+    }
+
+    @Override
+    public List<Synset> getSynsets(String lemma, Language language, BabelPOS pos) {
+        final List<Synset> result = new ArrayList<>();
+        for (final Synset synset : lemmas.getOrDefault(key(lemma, language), Collections.emptyList())) {
+            if (SynsetIDs.getTag(synset.getCode()) == pos.getTag()) result.add(synset);
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<Synset> getSynsetIterator() {
+        return synsets.values().iterator();
+    }
+
+    /**
+     * Make the lemma index key, so the lemmas are matched case-insensitively and regardless of whether
+     * the spaces are replaced with the underscores.
+     */
+    private static String key(String lemma, Language language) {
+        return language.name() + '\t' + lemma.replace('_', ' ').toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A builder for the MemoryBackend instances.
+     */
+    public static class Builder {
+        private final Map<String, List<Sense>> senses = new LinkedHashMap<>();
+        private final Map<String, List<Edge>> edges = new HashMap<>();
+
+        /**
+         * Add the synset unless it has already been added.
+         *
+         * @param synsetID the synset ID.
+         * @return this builder.
+         */
+        public Builder addSynset(String synsetID) {
+            senses.computeIfAbsent(synsetID, id -> new ArrayList<>());
+            return this;
+        }
+
+        /**
+         * Add the sense to the synset, adding the synset if necessary.
+         *
+         * @param synsetID the synset ID.
+         * @param sense    the sense.
+         * @return this builder.
+         */
+        public Builder addSense(String synsetID, Sense sense) {
+            senses.computeIfAbsent(synsetID, id -> new ArrayList<>()).add(sense);
+            return this;
+        }
+
+        /**
+         * Add the edge to the synset, adding the synset if necessary. The reverse edge is not added.
+         *
+         * @param synsetID the source synset ID.
+         * @param edge     the edge.
+         * @return this builder.
+         */
+        public Builder addEdge(String synsetID, Edge edge) {
+            addSynset(synsetID);
+            edges.computeIfAbsent(synsetID, id -> new ArrayList<>()).add(edge);
+            return this;
+        }
+
+        /**
+         * Build a MemoryBackend instance.
+         *
+         * @return the new backend instance.
+         */
+        public MemoryBackend build() {
+            final Map<Integer, Synset> synsets = new LinkedHashMap<>(senses.size() * 2);
+            final Map<String, List<Synset>> lemmas = new HashMap<>();
+            for (final Map.Entry<String, List<Sense>> entry : senses.entrySet()) {
+                final Synset synset = new MemorySynset(entry.getKey(), entry.getValue(),
+                        edges.getOrDefault(entry.getKey(), Collections.emptyList()));
+                synsets.put(synset.getCode(), synset);
+                final Set<String> keys = new HashSet<>();
+                for (final Sense sense : entry.getValue()) {
+                    final String key = key(sense.getSimpleLemma(), sense.getLanguage());
+                    if (keys.add(key)) lemmas.computeIfAbsent(key, k -> new ArrayList<>()).add(synset);
+                }
+            }
+            return new MemoryBackend(synsets, lemmas);
+        }
+    }
+
+    /**
+     * An immutable synset held in memory.
+     */
+    private static class MemorySynset implements Synset {
+        private final String id;
+        private final int code;
+        private final List<Sense> senses;
+        private final List<Edge> edges;
+
+        MemorySynset(String id, List<Sense> senses, List<Edge> edges) {
+            this.id = id;
+            this.code = SynsetIDs.encode(id);
+            this.senses = Collections.unmodifiableList(new ArrayList<>(senses));
+            this.edges = Collections.unmodifiableList(new ArrayList<>(edges));
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public int getCode() {
+            return code;
+        }
+
+        @Override
+        public List<Sense> getSenses() {
+            return senses;
+        }
+
+        @Override
+        public List<Sense> getSenses(Language language) {
+            final List<Sense> result = new ArrayList<>();
+            for (final Sense sense : senses) if (sense.getLanguage() == language) result.add(sense);
+            return result;
+        }
+
+        @Override
+        public List<Edge> getEdges() {
+            return edges;
+        }
+    }
+}
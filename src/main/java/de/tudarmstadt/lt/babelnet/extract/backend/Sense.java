@@ -0,0 +1,54 @@
+package de.tudarmstadt.lt.babelnet.extract.backend;
+
+import it.uniroma1.lcl.jlt.util.Language;
+
+/**
+ * A sense of a synset, i.e., a lemma in a certain language.
+ *
+ * @author Dmitry Ustalov
+ */
+public final class Sense {
+    private final String simpleLemma;
+    private final int frequency;
+    private final Language language;
+
+    /**
+     * Initialize the sense.
+     *
+     * @param simpleLemma the lemma, in which the spaces are replaced with the underscores.
+     * @param frequency   the frequency of the sense.
+     * @param language    the language.
+     */
+    public Sense(String simpleLemma, int frequency, Language language) {
+        this.simpleLemma = simpleLemma;
+        this.frequency = frequency;
+        this.language = language;
+    }
+
+    /**
+     * Get the lemma, in which the spaces are replaced with the underscores.
+     *
+     * @return the lemma.
+     */
+    public String getSimpleLemma() {
+        return simpleLemma;
+    }
+
+    /**
+     * Get the frequency of the sense.
+     *
+     * @return the frequency.
+     */
+    public int getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * Get the language of the sense.
+     *
+     * @return the language.
+     */
+    public Language getLanguage() {
+        return language;
+    }
+}
@@ -0,0 +1,51 @@
+package de.tudarmstadt.lt.babelnet.extract.backend;
+
+import de.tudarmstadt.lt.babelnet.extract.data.SynsetIDs;
+import it.uniroma1.lcl.jlt.util.Language;
+
+import java.util.List;
+
+/**
+ * A synset provided by a {@link Backend}.
+ *
+ * @author Dmitry Ustalov
+ */
+public interface Synset {
+    /**
+     * Get the synset ID.
+     *
+     * @return the synset ID.
+     */
+    String getId();
+
+    /**
+     * Get the synset ID code.
+     *
+     * @return the synset ID code, see {@link SynsetIDs}.
+     */
+    default int getCode() {
+        return SynsetIDs.encode(getId());
+    }
+
+    /**
+     * Get the senses in all the languages.
+     *
+     * @return the senses.
+     */
+    List<Sense> getSenses();
+
+    /**
+     * Get the senses in the given language.
+     *
+     * @param language the language.
+     * @return the senses.
+     */
+    List<Sense> getSenses(Language language);
+
+    /**
+     * Get the hypernymy and hyponymy edges.
+     *
+     * @return the edges.
+     */
+    List<Edge> getEdges();
+}
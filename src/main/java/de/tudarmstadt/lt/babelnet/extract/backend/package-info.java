@@ -0,0 +1,4 @@
+/**
+ * Lexical ontology backends providing the synsets to the actions.
+ */
+package de.tudarmstadt.lt.babelnet.extract.backend;
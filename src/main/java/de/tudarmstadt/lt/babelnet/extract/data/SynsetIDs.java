@@ -0,0 +1,70 @@
+package de.tudarmstadt.lt.babelnet.extract.data;
+
+/**
+ * An interface containing the routines for the compact representation of the BabelNet synset IDs. Each ID
+ * of the form {@code bn:00000000n} is encoded as a non-negative integer composed of its offset and its
+ * part of speech.
+ *
+ * @author Dmitry Ustalov
+ */
+public interface SynsetIDs {
+    /**
+     * The synset ID prefix.
+     */
+    String PREFIX = "bn:";
+
+    /**
+     * The part of speech tags in the order of their codes.
+     */
+    String TAGS = "nvar";
+
+    /**
+     * Encode the given synset ID.
+     *
+     * @param synsetID the synset ID.
+     * @return the code of the synset ID.
+     * @throws IllegalArgumentException when the synset ID is malformed.
+     */
+    static int encode(String synsetID) {
+        if (synsetID.length() != PREFIX.length() + 9 || !synsetID.startsWith(PREFIX)) {
+            throw new IllegalArgumentException("Malformed synset ID: " + synsetID);
+        }
+        int offset = 0;
+        for (int i = PREFIX.length(); i < PREFIX.length() + 8; i++) {
+            final char c = synsetID.charAt(i);
+            if (c < '0' || c > '9') throw new IllegalArgumentException("Malformed synset ID: " + synsetID);
+            offset = offset * 10 + (c - '0');
+        }
+        final int tag = TAGS.indexOf(synsetID.charAt(PREFIX.length() + 8));
+        if (tag < 0) throw new IllegalArgumentException("Malformed synset ID: " + synsetID);
+        return offset * TAGS.length() + tag;
+    }
+
+    /**
+     * Get the part of speech tag of the given synset ID code, e.g., {@code n} for a noun.
+     *
+     * @param code the code of the synset ID.
+     * @return the part of speech tag.
+     */
+    static char getTag(int code) {
+        return TAGS.charAt(code % TAGS.length());
+    }
+
+    /**
+     * Decode the given synset ID code.
+     *
+     * @param code the code of the synset ID.
+     * @return the synset ID.
+     */
+    static String decode(int code) {
+        final char[] chars = new char[PREFIX.length() + 9];
+        PREFIX.getChars(0, PREFIX.length(), chars, 0);
+        int offset = code / TAGS.length();
+        for (int i = PREFIX.length() + 7; i >= PREFIX.length(); i--) {
+            chars[i] = (char) ('0' + offset % 10);
+            offset /= 10;
+        }
+        chars[chars.length - 1] = TAGS.charAt(code % TAGS.length());
+        return new String(chars);
+    }
+}
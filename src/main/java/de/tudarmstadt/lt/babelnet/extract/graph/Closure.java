@@ -0,0 +1,184 @@
+package de.tudarmstadt.lt.babelnet.extract.graph;
+
+import de.tudarmstadt.lt.babelnet.extract.WorkerPool;
+import de.tudarmstadt.lt.babelnet.extract.Workers;
+
+import java.util.Arrays;
+
+/**
+ * The bounded transitive closure of the taxonomy in one direction, i.e., the ancestors or the descendants of
+ * every synset up to the given distance. The closure is computed by dynamic programming: the ancestors of
+ * a synset within the distance {@code k} are its hypernyms together with their ancestors within the distance
+ * {@code k - 1}, so every level is derived from the previous one in a single pass over the taxonomy, which
+ * does not have to be acyclic. The entries of the synset {@code i} are sorted by the target index and occupy
+ * the positions from {@code offsets[i]} inclusive to {@code offsets[i + 1]} exclusive.
+ *
+ * @author Dmitry Ustalov
+ */
+public class Closure {
+    /**
+     * The number of synsets processed by a worker at once.
+     */
+    private static final int CHUNK = 4096;
+
+    private final int[] offsets, nodes;
+    private final byte[] distances;
+
+    /**
+     * Initialize the closure.
+     *
+     * @param offsets   the entry offsets of every synset followed by the total number of entries.
+     * @param nodes     the target synset indices.
+     * @param distances the distances to the targets.
+     */
+    Closure(int[] offsets, int[] nodes, byte[] distances) {
+        this.offsets = offsets;
+        this.nodes = nodes;
+        this.distances = distances;
+    }
+
+    /**
+     * Compute the closure of the taxonomy.
+     *
+     * @param taxonomy  the taxonomy.
+     * @param depth     the maximal distance.
+     * @param hypernyms whether the ancestors or the descendants should be computed.
+     * @param pool      the worker pool.
+     * @return the closure.
+     */
+    public static Closure build(Taxonomy taxonomy, int depth, boolean hypernyms, WorkerPool pool) {
+        if (depth < 0 || depth > Byte.MAX_VALUE) throw new IllegalArgumentException("depth should fit in a byte");
+        Closure closure = new Closure(new int[taxonomy.size() + 1], new int[0], new byte[0]);
+        for (int level = 0; level < depth; level++) closure = closure.extend(taxonomy, hypernyms, pool);
+        return closure;
+    }
+
+    /**
+     * Get the number of entries.
+     *
+     * @return the number of entries.
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * Get the position of the first entry of the given synset.
+     *
+     * @param index the synset index.
+     * @return the position of the first entry.
+     */
+    public int getStart(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * Get the position following the last entry of the given synset.
+     *
+     * @param index the synset index.
+     * @return the position following the last entry.
+     */
+    public int getEnd(int index) {
+        return offsets[index + 1];
+    }
+
+    /**
+     * Get the target of the entry at the given position.
+     *
+     * @param position the entry position.
+     * @return the target synset index.
+     */
+    public int getNode(int position) {
+        return nodes[position];
+    }
+
+    /**
+     * Get the distance to the target of the entry at the given position.
+     *
+     * @param position the entry position.
+     * @return the distance.
+     */
+    public int getDistance(int position) {
+        return distances[position];
+    }
+
+    /**
+     * Derive the closure within the distance greater by one.
+     */
+    private Closure extend(Taxonomy taxonomy, boolean hypernyms, WorkerPool pool) {
+        final int size = taxonomy.size();
+        final Chunk[] chunks = new Chunk[(size + CHUNK - 1) / CHUNK];
+        try (final Workers<Integer> workers = pool.start(chunk ->
+                chunks[chunk] = new Chunk(taxonomy, hypernyms, chunk * CHUNK, Math.min(size, (chunk + 1) * CHUNK)))) {
+            for (int chunk = 0; chunk < chunks.length; chunk++) workers.submit(chunk);
+        }
+
+        long total = 0;
+        for (final Chunk chunk : chunks) total += chunk.size;
+        if (total > Integer.MAX_VALUE - 8) throw new IllegalStateException("the closure is too large");
+
+        final int[] offsets = new int[size + 1], nodes = new int[(int) total];
+        final byte[] distances = new byte[(int) total];
+        int position = 0;
+        for (final Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.lengths.length; i++) {
+                offsets[chunk.from + i] = position;
+                position += chunk.lengths[i];
+            }
+            System.arraycopy(chunk.nodes, 0, nodes, offsets[chunk.from], chunk.size);
+            System.arraycopy(chunk.distances, 0, distances, offsets[chunk.from], chunk.size);
+        }
+        offsets[size] = position;
+        return new Closure(offsets, nodes, distances);
+    }
+
+    /**
+     * The entries of the consecutive synsets computed by a single worker.
+     */
+    private class Chunk {
+        private final int from;
+        private final int[] lengths;
+        private int[] nodes = new int[CHUNK];
+        private byte[] distances = new byte[CHUNK];
+        private int size;
+
+        Chunk(Taxonomy taxonomy, boolean hypernyms, int from, int to) {
+            this.from = from;
+            this.lengths = new int[to - from];
+            // the entries are packed into the targets followed by the distances to sort them at once
+            long[] scratch = new long[64];
+            for (int index = from; index < to; index++) {
+                int count = 0;
+                for (int i = taxonomy.getEdgesStart(index); i < taxonomy.getEdgesEnd(index); i++) {
+                    final int edge = taxonomy.getTarget(i);
+                    if ((edge >= 0) != hypernyms) continue;
+                    final int parent = (edge < 0) ? ~edge : edge;
+                    final int start = offsets[parent], end = offsets[parent + 1];
+                    if (count + 1 + end - start > scratch.length) {
+                        scratch = Arrays.copyOf(scratch, Math.max(scratch.length * 2, count + 1 + end - start));
+                    }
+                    scratch[count++] = pack(parent, 1);
+                    for (int j = start; j < end; j++) scratch[count++] = pack(Closure.this.nodes[j], Closure.this.distances[j] + 1);
+                }
+                Arrays.sort(scratch, 0, count);
+                final int begin = size;
+                for (int i = 0; i < count; i++) {
+                    final int node = (int) (scratch[i] >>> Byte.SIZE);
+                    // the nearest occurrence of every target comes first, and the synset itself is skipped
+                    if (node == index || (size > begin && nodes[size - 1] == node)) continue;
+                    if (size == nodes.length) {
+                        nodes = Arrays.copyOf(nodes, size * 2);
+                        distances = Arrays.copyOf(distances, size * 2);
+                    }
+                    nodes[size] = node;
+                    distances[size++] = (byte) scratch[i];
+                }
+                lengths[index - from] = size - begin;
+            }
+        }
+    }
+
+    private static long pack(int node, int distance) {
+        return ((long) node << Byte.SIZE) | distance;
+    }
+}
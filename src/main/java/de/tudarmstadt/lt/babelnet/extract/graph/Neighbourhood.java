@@ -0,0 +1,114 @@
+package de.tudarmstadt.lt.babelnet.extract.graph;
+
+import java.util.Arrays;
+
+/**
+ * The reusable state of a breadth-first walk, which is meant to be held by a single thread and reset before
+ * each walk, so the walks allocate nothing once the arrays have grown to fit the largest neighbourhood.
+ * The visited nodes are kept in the array-backed queue in the order of their discovery together with their
+ * levels, and the queue itself is the result of the walk. The visited set is an open-addressing hash table
+ * of the node identifiers, whose slots are stamped with the generation of the walk, so resetting
+ * it takes constant time.
+ *
+ * @author Dmitry Ustalov
+ */
+public class Neighbourhood {
+    private int[] nodes = new int[64];
+    private byte[] levels = new byte[64];
+    private int size;
+    private int[] keys = new int[128], stamps = new int[128];
+    private int generation;
+
+    /**
+     * Start a new walk from the given source, forgetting the previous one.
+     *
+     * @param source the source node.
+     */
+    public void reset(int source) {
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            generation = 0;
+        }
+        generation++;
+        size = 0;
+        visit(source, 0);
+    }
+
+    /**
+     * Enqueue the given node unless it has already been visited in this walk.
+     *
+     * @param node  the node.
+     * @param level the level of the node.
+     * @return {@code true} if the node has been enqueued, {@code false} if it has been visited before.
+     */
+    public boolean visit(int node, int level) {
+        int position = find(node);
+        if (stamps[position] == generation) return false;
+        if (2 * (size + 1) > keys.length) {
+            grow();
+            position = find(node);
+        }
+        keys[position] = node;
+        stamps[position] = generation;
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            levels = Arrays.copyOf(levels, size * 2);
+        }
+        nodes[size] = node;
+        levels[size++] = (byte) level;
+        return true;
+    }
+
+    /**
+     * Get the number of visited nodes including the source.
+     *
+     * @return the number of nodes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the visited node in the order of discovery; the node {@code 0} is the source.
+     *
+     * @param index the index of the node.
+     * @return the node.
+     */
+    public int getNode(int index) {
+        return nodes[index];
+    }
+
+    /**
+     * Get the level of the visited node.
+     *
+     * @param index the index of the node.
+     * @return the level.
+     */
+    public int getLevel(int index) {
+        return levels[index];
+    }
+
+    /**
+     * Find the slot of the given node or the free slot where it should be inserted.
+     */
+    private int find(int node) {
+        final int mask = keys.length - 1;
+        int h = node * 0x9E3779B9;
+        int position = (h ^ (h >>> 16)) & mask;
+        while (stamps[position] == generation && keys[position] != node) position = (position + 1) & mask;
+        return position;
+    }
+
+    /**
+     * Double the visited set, moving only the nodes of the current walk.
+     */
+    private void grow() {
+        keys = new int[keys.length * 2];
+        stamps = new int[stamps.length * 2];
+        for (int i = 0; i < size; i++) {
+            final int position = find(nodes[i]);
+            keys[position] = nodes[i];
+            stamps[position] = generation;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package de.tudarmstadt.lt.babelnet.extract.graph;
+
+import java.util.Arrays;
+
+/**
+ * The reusable state of a bit-parallel breadth-first walk from up to {@link #CAPACITY} sources at once, which,
+ * like {@link Neighbourhood}, is meant to be held by a single thread and reset before each walk. Every node
+ * carries the bitmask of the sources that have visited it, so the edges of a node shared by several
+ * neighbourhoods are expanded once per level for all of them.
+ * <p>
+ * The walk proceeds level by level. The nodes visited at the open level are accumulated by
+ * {@link #visit(int, long, long)} and recorded in the order of their discovery by {@link #advance()}, each
+ * with two masks of the sources: the ones that have reached the node through a hypernym of the source and
+ * the ones that have reached it through a hyponym. The sources themselves are recorded at the level zero,
+ * and the nodes recorded at a level are the frontier expanded to the next one.
+ *
+ * @author Dmitry Ustalov
+ */
+public class Neighbourhoods {
+    /**
+     * The maximal number of sources walked at once.
+     */
+    public static final int CAPACITY = Long.SIZE;
+
+    private int[] nodes = new int[256];
+    private long[] ups = new long[256], downs = new long[256];
+    private int size;
+    private int[] starts = new int[8];
+    private int levels;
+    private int[] pending = new int[64];
+    private int pendingSize;
+    private int[] keys = new int[512], stamps = new int[512], opened = new int[512];
+    private long[] visited = new long[512], nextUps = new long[512], nextDowns = new long[512];
+    private int used, generation;
+
+    /**
+     * Start a new walk, forgetting the previous one.
+     */
+    public void reset() {
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            generation = 0;
+        }
+        generation++;
+        used = 0;
+        size = 0;
+        levels = 0;
+        pendingSize = 0;
+    }
+
+    /**
+     * Add the given source to the level zero, which should be done before the first call of {@link #advance()}.
+     *
+     * @param node  the source node.
+     * @param index the index of the source, from zero inclusive to {@link #CAPACITY} exclusive.
+     */
+    public void addSource(int node, int index) {
+        if (levels > 0) throw new IllegalStateException("the sources should be added before the walk");
+        visit(node, 1L << index, 0);
+    }
+
+    /**
+     * Visit the given node at the open level by the sources that have not visited it yet.
+     *
+     * @param node the node.
+     * @param up   the sources reaching the node through their hypernyms.
+     * @param down the sources reaching the node through their hyponyms.
+     */
+    public void visit(int node, long up, long down) {
+        int position = find(node);
+        if (stamps[position] != generation) {
+            if (2 * (used + 1) > keys.length) {
+                grow();
+                position = find(node);
+            }
+            keys[position] = node;
+            stamps[position] = generation;
+            visited[position] = 0;
+            opened[position] = -1;
+            used++;
+        }
+        up &= ~visited[position];
+        down &= ~visited[position];
+        if ((up | down) == 0) return;
+        if (opened[position] != levels) {
+            opened[position] = levels;
+            nextUps[position] = 0;
+            nextDowns[position] = 0;
+            if (pendingSize == pending.length) pending = Arrays.copyOf(pending, pendingSize * 2);
+            pending[pendingSize++] = node;
+        }
+        nextUps[position] |= up;
+        nextDowns[position] |= down;
+    }
+
+    /**
+     * Record the nodes visited at the open level and open the next one. A source reaching a node both through
+     * a hypernym and through a hyponym at the same level is counted as reaching it through the hypernym.
+     *
+     * @return {@code true} if any nodes have been recorded, {@code false} if the walk is over.
+     */
+    public boolean advance() {
+        if (levels + 2 > starts.length) starts = Arrays.copyOf(starts, starts.length * 2);
+        starts[levels] = size;
+        if (size + pendingSize > nodes.length) {
+            final int length = Math.max(nodes.length * 2, size + pendingSize);
+            nodes = Arrays.copyOf(nodes, length);
+            ups = Arrays.copyOf(ups, length);
+            downs = Arrays.copyOf(downs, length);
+        }
+        for (int i = 0; i < pendingSize; i++) {
+            final int position = find(pending[i]);
+            final long up = nextUps[position], down = nextDowns[position] & ~up;
+            visited[position] |= up | down;
+            nodes[size] = pending[i];
+            ups[size] = up;
+            downs[size++] = down;
+        }
+        pendingSize = 0;
+        starts[++levels] = size;
+        return starts[levels] > starts[levels - 1];
+    }
+
+    /**
+     * Get the index of the first node recorded at the given level.
+     *
+     * @param level the level.
+     * @return the index of the first node.
+     */
+    public int getStart(int level) {
+        return starts[level];
+    }
+
+    /**
+     * Get the index following the last node recorded at the given level.
+     *
+     * @param level the level.
+     * @return the index following the last node.
+     */
+    public int getEnd(int level) {
+        return starts[level + 1];
+    }
+
+    /**
+     * Get the recorded node.
+     *
+     * @param index the index of the node.
+     * @return the node.
+     */
+    public int getNode(int index) {
+        return nodes[index];
+    }
+
+    /**
+     * Get the sources that have reached the recorded node through their hypernyms; for the level zero,
+     * these are the sources located at the node.
+     *
+     * @param index the index of the node.
+     * @return the bitmask of the sources.
+     */
+    public long getUp(int index) {
+        return ups[index];
+    }
+
+    /**
+     * Get the sources that have reached the recorded node through their hyponyms.
+     *
+     * @param index the index of the node.
+     * @return the bitmask of the sources.
+     */
+    public long getDown(int index) {
+        return downs[index];
+    }
+
+    /**
+     * Copy the neighbourhood of one of the sources, which should be located at the given node.
+     *
+     * @param index the index of the source.
+     * @param node  the source node.
+     * @param into  the neighbourhood to fill.
+     */
+    public void copy(int index, int node, Neighbourhood into) {
+        into.reset(node);
+        final long bit = 1L << index;
+        for (int level = 1; level < levels; level++) {
+            for (int i = starts[level]; i < starts[level + 1]; i++) {
+                if ((ups[i] & bit) != 0) {
+                    into.visit(nodes[i], level);
+                } else if ((downs[i] & bit) != 0) {
+                    into.visit(nodes[i], -level);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the slot of the given node or the free slot where it should be inserted.
+     */
+    private int find(int node) {
+        final int mask = keys.length - 1;
+        int h = node * 0x9E3779B9;
+        int position = (h ^ (h >>> 16)) & mask;
+        while (stamps[position] == generation && keys[position] != node) position = (position + 1) & mask;
+        return position;
+    }
+
+    /**
+     * Double the visited set, moving only the nodes of the current walk.
+     */
+    private void grow() {
+        final int[] oldKeys = keys, oldStamps = stamps, oldOpened = opened;
+        final long[] oldVisited = visited, oldNextUps = nextUps, oldNextDowns = nextDowns;
+        final int length = oldKeys.length * 2;
+        keys = new int[length];
+        stamps = new int[length];
+        opened = new int[length];
+        visited = new long[length];
+        nextUps = new long[length];
+        nextDowns = new long[length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldStamps[i] != generation) continue;
+            final int position = find(oldKeys[i]);
+            keys[position] = oldKeys[i];
+            stamps[position] = generation;
+            opened[position] = oldOpened[i];
+            visited[position] = oldVisited[i];
+            nextUps[position] = oldNextUps[i];
+            nextDowns[position] = oldNextDowns[i];
+        }
+    }
+}
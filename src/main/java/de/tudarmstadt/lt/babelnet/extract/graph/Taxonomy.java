@@ -0,0 +1,320 @@
+package de.tudarmstadt.lt.babelnet.extract.graph;
+
+import de.tudarmstadt.lt.babelnet.extract.backend.Backend;
+import de.tudarmstadt.lt.babelnet.extract.backend.Edge;
+import de.tudarmstadt.lt.babelnet.extract.data.SynsetIDs;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The compact in-memory representation of the BabelNet hypernymy and hyponymy graph. The synsets are
+ * interned to the consecutive indices in the order of their codes, and the edges are stored in the
+ * compressed sparse row form: the edges of the synset {@code i} occupy the positions from
+ * {@code offsets[i]} inclusive to {@code offsets[i + 1]} exclusive of the {@code targets} array.
+ * A hypernym is stored as its index, while a hyponym is stored as the bitwise complement of its index.
+ * <p>
+ * The taxonomy can be written to a binary file consisting of the header of four integers, i.e., the magic
+ * number, the format version, the number of synsets and the number of edges, followed by the synset codes,
+ * the offsets and the targets arrays. All the integers are little-endian. Such a file is memory-mapped
+ * when opened, so it is not read in advance.
+ *
+ * @author Dmitry Ustalov
+ */
+public class Taxonomy {
+    /**
+     * The magic number of the taxonomy file, i.e., the {@code BNTX} string.
+     */
+    public static final int MAGIC = 0x42_4E_54_58;
+
+    /**
+     * The version of the taxonomy file format.
+     */
+    public static final int VERSION = 1;
+
+    private static final int HEADER = 4 * Integer.BYTES;
+
+    private final IntBuffer synsets, offsets, targets;
+
+    /**
+     * Initialize the taxonomy.
+     *
+     * @param synsets the sorted synset ID codes.
+     * @param offsets the edge offsets of every synset followed by the total number of edges.
+     * @param targets the edge targets.
+     */
+    Taxonomy(IntBuffer synsets, IntBuffer offsets, IntBuffer targets) {
+        this.synsets = synsets;
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Initialize the taxonomy.
+     *
+     * @param synsets the sorted synset ID codes.
+     * @param offsets the edge offsets of every synset followed by the total number of edges.
+     * @param targets the edge targets.
+     */
+    Taxonomy(int[] synsets, int[] offsets, int[] targets) {
+        this(IntBuffer.wrap(synsets), IntBuffer.wrap(offsets), IntBuffer.wrap(targets));
+    }
+
+    /**
+     * Memory-map the taxonomy file.
+     *
+     * @param filename the file to map.
+     * @return the taxonomy.
+     * @throws IOException when an I/O error has occurred or the file is malformed.
+     */
+    public static Taxonomy map(String filename) throws IOException {
+        try (final RandomAccessFile file = new RandomAccessFile(filename, "r");
+             final FileChannel channel = file.getChannel()) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) throw new IOException("Truncated taxonomy file: " + filename);
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) throw new IOException("Not a taxonomy file: " + filename);
+            final int version = header.getInt();
+            if (version != VERSION) throw new IOException("Unsupported taxonomy file version: " + version);
+            final long size = header.getInt(), edges = header.getInt();
+            if (channel.size() != HEADER + (size + size + 1 + edges) * Integer.BYTES) {
+                throw new IOException("Truncated taxonomy file: " + filename);
+            }
+            // the sections are mapped separately as a single mapping cannot exceed 2 GiB
+            long position = HEADER;
+            final IntBuffer synsets = map(channel, position, size);
+            position += size * Integer.BYTES;
+            final IntBuffer offsets = map(channel, position, size + 1);
+            position += (size + 1) * Integer.BYTES;
+            final IntBuffer targets = map(channel, position, edges);
+            return new Taxonomy(synsets, offsets, targets);
+        }
+    }
+
+    private static IntBuffer map(FileChannel channel, long position, long count) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, count * Integer.BYTES).
+                order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    /**
+     * Read the hypernymy and hyponymy graph of the whole backend using the synset iterator.
+     *
+     * @param backend the synset backend.
+     * @return the taxonomy.
+     */
+    public static Taxonomy build(Backend backend) {
+        final Builder builder = new Builder();
+        backend.getSynsetIterator().forEachRemaining(synset -> builder.add(synset.getCode(), synset.getEdges()));
+        return builder.build();
+    }
+
+    /**
+     * Get the number of synsets.
+     *
+     * @return the number of synsets.
+     */
+    public int size() {
+        return synsets.limit();
+    }
+
+    /**
+     * Get the number of edges.
+     *
+     * @return the number of edges.
+     */
+    public int edges() {
+        return targets.limit();
+    }
+
+    /**
+     * Find the index of the given synset.
+     *
+     * @param synsetID the synset ID.
+     * @return the synset index, or a negative value if there is no such synset.
+     */
+    public int indexOf(String synsetID) {
+        return indexOf(SynsetIDs.encode(synsetID));
+    }
+
+    /**
+     * Find the index of the given synset.
+     *
+     * @param code the synset ID code.
+     * @return the synset index, or a negative value if there is no such synset.
+     */
+    public int indexOf(int code) {
+        int low = 0, high = synsets.limit() - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1, value = synsets.get(middle);
+            if (value < code) {
+                low = middle + 1;
+            } else if (value > code) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Get the synset ID code by its index.
+     *
+     * @param index the synset index.
+     * @return the synset ID code.
+     */
+    public int getCode(int index) {
+        return synsets.get(index);
+    }
+
+    /**
+     * Get the position of the first edge of the given synset.
+     *
+     * @param index the synset index.
+     * @return the position of the first edge.
+     */
+    public int getEdgesStart(int index) {
+        return offsets.get(index);
+    }
+
+    /**
+     * Get the position following the last edge of the given synset.
+     *
+     * @param index the synset index.
+     * @return the position following the last edge.
+     */
+    public int getEdgesEnd(int index) {
+        return offsets.get(index + 1);
+    }
+
+    /**
+     * Get the encoded target of the edge at the given position.
+     *
+     * @param position the edge position.
+     * @return the target index for a hypernym, or its bitwise complement for a hyponym.
+     */
+    public int getTarget(int position) {
+        return targets.get(position);
+    }
+
+    /**
+     * Write the taxonomy to the given file.
+     *
+     * @param filename the file to write.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public void write(String filename) throws IOException {
+        try (final RandomAccessFile file = new RandomAccessFile(filename, "rw");
+             final FileChannel channel = file.getChannel()) {
+            channel.truncate(0);
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(size()).putInt(edges());
+            for (final IntBuffer section : new IntBuffer[]{synsets, offsets, targets}) {
+                for (int i = 0; i < section.limit(); i++) {
+                    if (!buffer.hasRemaining()) drain(buffer, channel);
+                    buffer.putInt(section.get(i));
+                }
+            }
+            drain(buffer, channel);
+        }
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * A builder for the Taxonomy instances that accumulates the synsets in arbitrary order.
+     */
+    public static class Builder {
+        private int[] nodes = new int[1024], degrees = new int[1024], edges = new int[4096];
+        private int nodesCount, edgesCount;
+
+        /**
+         * Add the synset and its edges.
+         *
+         * @param code  the synset ID code.
+         * @param edges the synset edges.
+         * @return this builder.
+         */
+        public Builder add(int code, Collection<Edge> edges) {
+            if (nodesCount == nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodesCount * 2);
+                degrees = Arrays.copyOf(degrees, nodesCount * 2);
+            }
+            int degree = 0;
+            for (final Edge edge : edges) {
+                if (edgesCount == this.edges.length) this.edges = Arrays.copyOf(this.edges, edgesCount * 2);
+                final int target = edge.getTarget();
+                this.edges[edgesCount++] = edge.isHypernym() ? target : ~target;
+                degree++;
+            }
+            nodes[nodesCount] = code;
+            degrees[nodesCount++] = degree;
+            return this;
+        }
+
+        /**
+         * Build a Taxonomy instance. The edges pointing outside of the added synsets are dropped.
+         *
+         * @return the new taxonomy instance.
+         */
+        public Taxonomy build() {
+            final int[] synsets = Arrays.copyOf(nodes, nodesCount);
+            Arrays.sort(synsets);
+
+            final int[] offsets = new int[nodesCount + 1];
+            final int[] positions = new int[nodesCount];
+            for (int i = 0, position = 0; i < nodesCount; i++) {
+                positions[i] = position;
+                position += degrees[i];
+                final int index = Arrays.binarySearch(synsets, nodes[i]);
+                offsets[index + 1] = degrees[i];
+            }
+            for (int i = 0; i < nodesCount; i++) offsets[i + 1] += offsets[i];
+
+            final int[] targets = new int[edgesCount];
+            final int[] fill = Arrays.copyOf(offsets, nodesCount);
+            int dropped = 0;
+            for (int i = 0; i < nodesCount; i++) {
+                final int index = Arrays.binarySearch(synsets, nodes[i]);
+                for (int j = positions[i]; j < positions[i] + degrees[i]; j++) {
+                    final int code = edges[j];
+                    final int target = Arrays.binarySearch(synsets, code < 0 ? ~code : code);
+                    if (target < 0) {
+                        dropped++;
+                        continue;
+                    }
+                    targets[fill[index]++] = code < 0 ? ~target : target;
+                }
+            }
+
+            if (dropped == 0) return new Taxonomy(synsets, offsets, targets);
+            return compact(synsets, offsets, fill, targets);
+        }
+
+        /**
+         * Remove the gaps left by the dropped edges.
+         */
+        private static Taxonomy compact(int[] synsets, int[] offsets, int[] ends, int[] targets) {
+            final int[] compactOffsets = new int[offsets.length];
+            int position = 0;
+            for (int i = 0; i < synsets.length; i++) {
+                compactOffsets[i] = position;
+                for (int j = offsets[i]; j < ends[i]; j++) targets[position++] = targets[j];
+            }
+            compactOffsets[synsets.length] = position;
+            return new Taxonomy(synsets, compactOffsets, Arrays.copyOf(targets, position));
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Graph representations of the BabelNet taxonomy.
+ */
+package de.tudarmstadt.lt.babelnet.extract.graph;
@@ -0,0 +1,155 @@
+package de.tudarmstadt.lt.babelnet.extract.actions;
+
+import de.tudarmstadt.lt.babelnet.extract.Compression;
+import de.tudarmstadt.lt.babelnet.extract.WorkerPool;
+import de.tudarmstadt.lt.babelnet.extract.backend.Backend;
+import de.tudarmstadt.lt.babelnet.extract.backend.MemoryBackend;
+import de.tudarmstadt.lt.babelnet.extract.backend.Sense;
+import de.tudarmstadt.lt.babelnet.extract.backend.Synset;
+import de.tudarmstadt.lt.babelnet.extract.data.SynsetIDs;
+import it.uniroma1.lcl.babelnet.data.BabelPOS;
+import it.uniroma1.lcl.jlt.util.Language;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+
+/**
+ * The checks of resuming an interrupted ordered run using an in-memory fixture.
+ *
+ * @author Dmitry Ustalov
+ */
+public class ResumeTest {
+    private static final int SIZE = 1000;
+
+    /**
+     * The synset the lookup of which interrupts the run.
+     */
+    private static final int FAILURE = 500;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final Logger logger = Logger.getLogger(ResumeTest.class.getName());
+    private MemoryBackend backend;
+    private String synsetsFilename;
+    private byte[] expected;
+
+    @Before
+    public void setUp() throws IOException {
+        logger.setLevel(Level.WARNING);
+        final MemoryBackend.Builder builder = new MemoryBackend.Builder();
+        final List<String> synsetIDs = new ArrayList<>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            final String synsetID = String.format("bn:%08dn", i + 1);
+            synsetIDs.add(synsetID);
+            builder.addSense(synsetID, new Sense("lemma" + i, i % 7, Language.EN));
+            builder.addSense(synsetID, new Sense("lemma" + (i + 1), i % 5, Language.EN));
+        }
+        backend = builder.build();
+        synsetsFilename = folder.newFile("synsets.txt").getPath();
+        Files.write(new File(synsetsFilename).toPath(), synsetIDs, StandardCharsets.UTF_8);
+
+        final File uninterrupted = folder.newFile("expected.txt");
+        senses(backend, uninterrupted, true, false).run();
+        expected = Files.readAllBytes(uninterrupted.toPath());
+    }
+
+    @Test
+    public void testResume() throws IOException {
+        final File output = new File(folder.getRoot(), "senses.txt");
+        interrupt(senses(new FailingBackend(backend), output, true, false));
+        final File checkpoint = new File(output.getPath() + ".checkpoint");
+        assertTrue("the interrupted run should save the checkpoint", checkpoint.exists());
+        final long written = Long.parseLong(new String(Files.readAllBytes(checkpoint.toPath()), StandardCharsets.UTF_8).split("\t")[0]);
+        assertTrue("the checkpoint should be in the middle of the run", written > 0 && written <= FAILURE);
+
+        senses(backend, output, true, true).run();
+        assertArrayEquals(expected, Files.readAllBytes(output.toPath()));
+    }
+
+    @Test
+    public void testStaleCheckpoint() throws IOException {
+        final File output = new File(folder.getRoot(), "senses.txt");
+        senses(backend, output, true, false).run();
+        final File checkpoint = new File(output.getPath() + ".checkpoint");
+        assertTrue(checkpoint.exists());
+
+        // the run that does not resume should not leave the checkpoint of the previous run behind
+        interrupt(senses(new FailingBackend(backend), output, false, false));
+        assertFalse(checkpoint.exists());
+
+        senses(backend, output, true, true).run();
+        assertArrayEquals(expected, Files.readAllBytes(output.toPath()));
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingOutput() throws IOException {
+        final File output = new File(folder.getRoot(), "senses.txt");
+        senses(backend, output, true, false).run();
+        assertTrue(output.delete());
+        senses(backend, output, true, true).run();
+    }
+
+    private SensesAction senses(Backend backend, File output, boolean ordered, boolean resume) {
+        // a single worker makes the interrupted run stop exactly at the failed batch
+        return new SensesAction(backend, Collections.singletonList(Language.EN), synsetsFilename, output.getPath(),
+                ordered, resume, false, Compression.NONE, false, new WorkerPool(1, false), logger);
+    }
+
+    private static void interrupt(SensesAction action) throws IOException {
+        try {
+            action.run();
+            fail("the run should have been interrupted");
+        } catch (final RuntimeException ex) {
+            assertTrue(ex.getCause() instanceof IOException);
+        }
+    }
+
+    /**
+     * The backend that fails to look up the batch containing the {@link #FAILURE} synset.
+     */
+    private static class FailingBackend implements Backend {
+        private final Backend backend;
+
+        FailingBackend(Backend backend) {
+            this.backend = backend;
+        }
+
+        @Override
+        public Synset getSynset(String synsetID) throws IOException {
+            return backend.getSynset(synsetID);
+        }
+
+        @Override
+        public List<Synset> getSynsets(int[] codes) throws IOException {
+            for (final int code : codes) {
+                if (SynsetIDs.decode(code).equals(String.format("bn:%08dn", FAILURE + 1))) throw new IOException("interrupted");
+            }
+            return backend.getSynsets(codes);
+        }
+
+        @Override
+        public List<Synset> getSynsets(String lemma, Language language, BabelPOS pos) throws IOException {
+            return backend.getSynsets(lemma, language, pos);
+        }
+
+        @Override
+        public Iterator<Synset> getSynsetIterator() {
+            return backend.getSynsetIterator();
+        }
+    }
+}